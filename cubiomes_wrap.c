@@ -10,6 +10,8 @@ typedef struct {
     Generator g;
     int block_deep_dark;
     int block_mushroom_fields;
+    int* cache;        // genBiomes scratch reused by cbi_gen_quart_plane_into
+    size_t cache_len;  // in ints
 } Ctx;
 
 int cbi_gen_quart_plane(void* p, int qx, int qz, int sx, int sz, int yq, int* out)
@@ -38,6 +40,49 @@ int cbi_gen_quart_plane(void* p, int qx, int qz, int sx, int sz, int yq, int* ou
     return 0;
 }
 
+// Like cbi_gen_quart_plane, but writes into caller-owned memory and reuses the context's cache
+// (grown to the largest request, freed by cbi_free), so a call allocates nothing.
+// bytes_per_id = 1 stores ids as uint8 (ids above 255 become 255), 4 stores int32.
+int cbi_gen_quart_plane_into(void* p, int qx, int qz, int sx, int sz, int yq, void* out, int bytes_per_id)
+{
+    if (!p || !out || sx <= 0 || sz <= 0) return 1;
+    if (bytes_per_id != 1 && bytes_per_id != 4) return 1;
+    Ctx* ctx = (Ctx*)p;
+
+    Range r;
+    r.scale = 4;
+    r.x = qx;
+    r.z = qz;
+    r.sx = sx;
+    r.sz = sz;
+
+    r.y = yq;
+    r.sy = 1;
+
+    size_t need = getMinCacheSize(&ctx->g, r.scale, r.sx, r.sy, r.sz);
+    if (need > ctx->cache_len) {
+        int* grown = (int*)realloc(ctx->cache, need * sizeof(int));
+        if (!grown) return 2;
+        ctx->cache = grown;
+        ctx->cache_len = need;
+    }
+
+    genBiomes(&ctx->g, ctx->cache, r);
+
+    int n = sx * sz;
+    if (bytes_per_id == 1) {
+        uint8_t* o = (uint8_t*)out;
+        for (int i = 0; i < n; i++) {
+            int id = ctx->cache[i];
+            o[i] = (uint8_t)((id >= 0 && id <= 255) ? id : 255);
+        }
+    } else {
+        int* o = (int*)out;
+        for (int i = 0; i < n; i++) o[i] = ctx->cache[i];
+    }
+    return 0;
+}
+
 void* cbi_new(uint64_t seed, int mc)
 {
     Ctx* ctx = (Ctx*)malloc(sizeof(Ctx));
@@ -50,12 +95,17 @@ void* cbi_new(uint64_t seed, int mc)
     ctx->block_deep_dark = (mc >= MC_1_19) ? 1 : 0;
     ctx->block_mushroom_fields = 1;
 
+    ctx->cache = NULL;
+    ctx->cache_len = 0;
+
     return (void*)ctx;
 }
 
 void cbi_free(void* p)
 {
-    if (p) free(p);
+    if (!p) return;
+    free(((Ctx*)p)->cache);
+    free(p);
 }
 
 /** Configure which biomes are treated as blocked (1=true, 0=false). */
@@ -83,6 +133,21 @@ int cbi_is_blocked(void* p, int x, int y, int z)
     return 0;
 }
 
+// Batch form of cbi_is_blocked: out[i] = 1 if (xs[i],ys[i],zs[i]) is blocked, else 0.
+// One call per candidate instead of one per sample point. Returns 0, or 1 on bad arguments.
+int cbi_is_blocked_many(void* p, int n, const int* xs, const int* ys, const int* zs, uint8_t* out)
+{
+    if (!p || n < 0 || (n > 0 && (!xs || !ys || !zs || !out))) return 1;
+    Ctx* ctx = (Ctx*)p;
+
+    for (int i = 0; i < n; i++) {
+        int id = getBiomeAt(&ctx->g, 1, xs[i], ys[i], zs[i]);
+        out[i] = (uint8_t)((ctx->block_deep_dark && id == deep_dark)
+                || (ctx->block_mushroom_fields && id == mushroom_fields));
+    }
+    return 0;
+}
+
 int cbi_biome_id_deep_dark(void) {
     return deep_dark;
 }
@@ -0,0 +1,81 @@
+package slimefinder;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Native biome paths. Needs -Dslimefinder.cubiomesLib=<path> (the Gradle jmh task sets it from
+ * -Pcubiomes.lib and excludes this class when the library is missing).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+@State(Scope.Thread)
+public class BiomeBench {
+
+    private static final int POINTS = 1024;
+
+    @Param({"125"})
+    public int mc;
+
+    @Param({"64"})
+    public int tileSizeChunks;
+
+    private CubiomesBiomeProvider cb;
+    private BiomeOkFracGrid grid;
+    private int tileIndex;
+
+    private final int[] xs = new int[POINTS];
+    private final int[] ys = new int[POINTS];
+    private final int[] zs = new int[POINTS];
+    private final boolean[] out = new boolean[POINTS];
+
+    @Setup(Level.Trial)
+    public void setup() {
+        String lib = System.getProperty("slimefinder.cubiomesLib", "");
+        if (lib.isBlank()) {
+            throw new IllegalStateException("BiomeBench needs -Dslimefinder.cubiomesLib=<path to libcubiomeswrap>");
+        }
+        cb = new CubiomesBiomeProvider(11868470311385L, mc, lib, mc >= 119, true);
+        grid = BiomeOkFracGrid.createCached(cb, -64, tileSizeChunks, 16);
+        java.util.Arrays.fill(ys, -64);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (cb != null) cb.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public int isBlocked() {
+        int blocked = 0;
+        int base = (tileIndex++) * 16;
+        for (int i = 0; i < POINTS; i++) {
+            if (cb.isBlocked(base + i * 4, -64, base)) blocked++;
+        }
+        return blocked;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public boolean[] isBlockedMany() {
+        int base = (tileIndex++) * 16;
+        for (int i = 0; i < POINTS; i++) {
+            xs[i] = base + i * 4;
+            zs[i] = base;
+        }
+        cb.isBlockedMany(POINTS, xs, ys, zs, out);
+        return out;
+    }
+
+    @Benchmark
+    public Object loadTile() {
+        // Fresh tile every call; loadTile bypasses the LRU.
+        int base = (tileIndex++) * tileSizeChunks;
+        return grid.loadTile(base, 0);
+    }
+}
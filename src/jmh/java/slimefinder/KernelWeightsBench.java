@@ -0,0 +1,20 @@
+package slimefinder;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/** One-off kernel setup cost (paid per JVM today, per seed once batch modes exist). */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class KernelWeightsBench {
+
+    @Benchmark
+    public KernelWeights precompute() {
+        return KernelWeights.precompute(KernelWeights.RADIUS_BLOCKS);
+    }
+}
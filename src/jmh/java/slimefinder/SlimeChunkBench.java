@@ -0,0 +1,62 @@
+package slimefinder;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Raw slime-chunk test throughput. One op = one chunk, so the score reads directly as chunks/s.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SlimeChunkBench {
+
+    private static final int ROW = 4096;
+
+    @Param({"11868470311385"})
+    public long seed;
+
+    private int kz;
+    private final long[] bits = new long[ROW / 64];
+    private final long[] xTerms = new long[ROW];
+
+    @Setup(Level.Trial)
+    public void setup() {
+        SlimeChunk.fillXTerms(-ROW / 2, ROW, xTerms);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROW)
+    public int isSlimeChunkRow() {
+        // Walk rows so the z term changes like it does inside processTile.
+        int z = kz++;
+        int hits = 0;
+        for (int x = -ROW / 2; x < ROW / 2; x++) {
+            if (SlimeChunk.isSlimeChunk(seed, x, z)) hits++;
+        }
+        return hits;
+    }
+
+    /**
+     * Row fill from a precomputed x-term table (what processTile does per row); vectorized when
+     * the fork runs with --add-modules jdk.incubator.vector.
+     */
+    @Benchmark
+    @OperationsPerInvocation(ROW)
+    public long[] fillRowFromTerms() {
+        SlimeChunk.fillRowFromTerms(seed + SlimeChunk.zTerm(kz++), xTerms, ROW, bits, 0);
+        return bits;
+    }
+
+    /** The scalar per-chunk reference the row fill is measured against. */
+    @Benchmark
+    @OperationsPerInvocation(ROW)
+    public long[] fillRowScalar() {
+        SlimeChunk.fillRowScalar(seed, kz++, -ROW / 2, ROW / 2 - 1, bits);
+        return bits;
+    }
+}
@@ -0,0 +1,72 @@
+package slimefinder;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-tile fast search (count + scan + worker heap) across tile shapes and counting engines.
+ * The "centers" aux counter reports centers/s; the primary score is tiles/s.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+@State(Scope.Thread)
+public class TileBench {
+
+    @Param({"512x4096", "128x4096", "512x512", "2048x256"})
+    public String shape;
+
+    // Every shape has more than 50 centers at >= 40, so the heap fills and the pruning path runs.
+    @Param({"40"})
+    public double threshold;
+
+    @Param({"SCATTER", "SPAN", "BITS"})
+    public CountEngine engine;
+
+    @Param({"true", "false"})
+    public boolean prune;
+
+    private SlimeFinder.Args args;
+    private SearchContext ctx;
+    private SlimeFinder.Tile tile;
+    private PackedTopK top;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public long centers;
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        String[] rc = shape.split("x");
+        int rows = Integer.parseInt(rc[0]);
+        int cols = Integer.parseInt(rc[1]);
+
+        args = new SlimeFinder.Args();
+        args.seed = 11868470311385L;
+        args.mChunks = 100_000;
+        args.threshold = threshold;
+        args.tileRows = rows;
+        args.tileCols = cols;
+        args.engine = engine;
+
+        args.prune = prune;
+        ctx = new SearchContext(args, KernelWeights.precompute(KernelWeights.RADIUS_BLOCKS), null);
+        top = new PackedTopK(50);
+        // Away from the origin so the ring/inner checks never short-circuit.
+        tile = new SlimeFinder.Tile(20_000, 20_000 + rows - 1, 30_000, 30_000 + cols - 1);
+    }
+
+    @Benchmark
+    public PackedTopK processTile(Counters c) {
+        top.clear();
+        ctx.floor.set(Long.MIN_VALUE); // the previous invocation's top-K would prune this one
+        SlimeFinder.processTile(tile, ctx, top);
+        c.centers += (long) args.tileRows * args.tileCols;
+        return top;
+    }
+}
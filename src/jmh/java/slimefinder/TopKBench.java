@@ -0,0 +1,67 @@
+package slimefinder;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TopK and PackedTopK under heavy churn: rising scores evict on every offer (worst case),
+ * random scores mostly hit the reject path once the heap is full.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class TopKBench {
+
+    private static final int OFFERS = 65_536;
+
+    @Param({"50", "10000"})
+    public int k;
+
+    private double[] random;
+    private PackedTopK packed;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        SplittableRandom r = new SplittableRandom(42);
+        random = new double[OFFERS];
+        for (int i = 0; i < OFFERS; i++) random[i] = r.nextInt(100);
+        packed = new PackedTopK(k);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OFFERS)
+    public TopK offerRising() {
+        TopK top = new TopK(k);
+        for (int i = 0; i < OFFERS; i++) top.offer(i, -i, i);
+        return top;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OFFERS)
+    public TopK offerRandom() {
+        TopK top = new TopK(k);
+        for (int i = 0; i < OFFERS; i++) top.offer(i, -i, random[i]);
+        return top;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OFFERS)
+    public PackedTopK packedOfferRising() {
+        packed.clear();
+        for (int i = 0; i < OFFERS; i++) packed.offer(PackedTopK.key(i & 0x7FFF, i, -i));
+        return packed;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OFFERS)
+    public PackedTopK packedOfferRandom() {
+        packed.clear();
+        for (int i = 0; i < OFFERS; i++) packed.offer(PackedTopK.key((int) random[i], i, -i));
+        return packed;
+    }
+}
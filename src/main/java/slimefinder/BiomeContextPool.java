@@ -0,0 +1,61 @@
+package slimefinder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One biome provider per worker thread.
+ *
+ * A cubiomes Generator is not safe to share between threads, so every thread that asks gets its
+ * own native context (one cbi_new each), created on first use and kept for the rest of the run.
+ * close() frees all of them.
+ */
+final class BiomeContextPool implements AutoCloseable {
+
+    /** Creates one provider; called at most once per thread. */
+    interface Factory {
+        BiomeProvider create();
+    }
+
+    private final Factory factory;
+    private final List<BiomeProvider> created = new ArrayList<>();
+    private final ThreadLocal<BiomeProvider> local;
+
+    BiomeContextPool(Factory factory) {
+        this.factory = factory;
+        this.local = ThreadLocal.withInitial(this::newProvider);
+    }
+
+    /** Contexts for cubiomes; every worker gets its own cbi_new with the same seed, version and rules. */
+    static BiomeContextPool cubiomes(long seed, int mc, String libPath, boolean blockDeepDark, boolean blockMushroomFields) {
+        return new BiomeContextPool(() -> new CubiomesBiomeProvider(seed, mc, libPath, blockDeepDark, blockMushroomFields));
+    }
+
+    /** The calling thread's provider. */
+    BiomeProvider get() {
+        return local.get();
+    }
+
+    /** Number of contexts created so far. */
+    synchronized int size() {
+        return created.size();
+    }
+
+    private BiomeProvider newProvider() {
+        BiomeProvider p = factory.create();
+        synchronized (this) {
+            created.add(p);
+        }
+        return p;
+    }
+
+    @Override
+    public synchronized void close() {
+        for (BiomeProvider p : created) {
+            if (p instanceof AutoCloseable c) {
+                try { c.close(); } catch (Exception ignored) {}
+            }
+        }
+        created.clear();
+    }
+}
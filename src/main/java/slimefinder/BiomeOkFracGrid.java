@@ -1,71 +1,129 @@
 package slimefinder;
 
-import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Provides per-chunk biome-ok fraction (0..1) for Deep Dark / Mushroom Fields veto.
  *
- * Cached mode uses tiles (e.g., 512x512 chunks) generated from quart-plane calls,
- * then served through an LRU to keep memory bounded (works for huge scans).
+ * Cached mode uses tiles (e.g., 32x32 chunks) generated from quart-plane calls. For every chunk a
+ * tile keeps a 16-bit mask of its blocked 4x4-block quart cells (bit oz*4+ox), which answers both
+ * okFrac and "is this part of the chunk fully blocked" without touching the native side again.
+ *
+ * Tiles live in a ConcurrentHashMap: hits are lock-free, and concurrent misses on one tile share
+ * a single generation (the first thread to insert the slot loads it, the others wait on it).
+ * Memory is bounded by tile count with approximate-LRU eviction (works for huge scans).
+ *
+ * An optional BiomeTileStore sits under the LRU: misses are read from it before generating, and
+ * generated tiles are written back, so later runs on the same world skip cubiomes for them.
  */
 public final class BiomeOkFracGrid {
 
-    private final CubiomesBiomeProvider cb;
+    private final BiomeContextPool contexts; // per-thread cubiomes contexts for tile generation
+    private final CubiomesBiomeProvider shared; // single-context mode (generation is serialized), else null
+    private final BiomeTileStore store; // disk tier, may be null
     private final int yQuart;
     private final int tileSizeChunks;
     private final int deepDarkId;
     private final int mushroomFieldsId;
 
-    // NEW:
     private final boolean blockDeepDark;
     private final boolean blockMushroomFields;
 
-    private final LinkedHashMap<Long, Tile> lru;
+    private final ConcurrentHashMap<Long, Slot> tiles = new ConcurrentHashMap<>();
     private final int maxTiles;
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
 
-    private static final class Tile {
+    static final class Tile {
         final int baseCx;
         final int baseCz;
-        final byte[] ok; // tileSizeChunks * tileSizeChunks, value 0..255
-        Tile(int baseCx, int baseCz, byte[] ok) {
+        final short[] blocked; // tileSizeChunks * tileSizeChunks quart masks
+        Tile(int baseCx, int baseCz, short[] blocked) {
             this.baseCx = baseCx;
             this.baseCz = baseCz;
-            this.ok = ok;
+            this.blocked = blocked;
         }
     }
 
-    private BiomeOkFracGrid(CubiomesBiomeProvider cb, int farmY, int tileSizeChunks, int maxTiles) {
-        this.cb = cb;
+    /** One cache entry: the tile (once loaded) and when it was last used. */
+    private static final class Slot {
+        final CompletableFuture<Tile> tile = new CompletableFuture<>();
+        volatile long lastUsed;
+    }
+
+    private BiomeOkFracGrid(CubiomesBiomeProvider template, BiomeContextPool contexts, CubiomesBiomeProvider shared,
+                            BiomeTileStore store, int farmY, int tileSizeChunks, int maxTiles) {
+        this.contexts = contexts;
+        this.shared = shared;
+        this.store = store;
         this.yQuart = Math.floorDiv(farmY, 4);
         this.tileSizeChunks = tileSizeChunks;
-        this.deepDarkId = cb.deepDarkId();
-        this.mushroomFieldsId = cb.mushroomFieldsId();
-
-        // NEW:
-        this.blockDeepDark = cb.blocksDeepDark();
-        this.blockMushroomFields = cb.blocksMushroomFields();
-
+        this.deepDarkId = template.deepDarkId();
+        this.mushroomFieldsId = template.mushroomFieldsId();
+        this.blockDeepDark = template.blocksDeepDark();
+        this.blockMushroomFields = template.blocksMushroomFields();
+        this.maxTiles = Math.max(1, maxTiles);
+    }
 
-        this.maxTiles = maxTiles;
+    /** Create a cached/tiled okFrac provider on one context; tile generation is serialized on it. */
+    public static BiomeOkFracGrid createCached(CubiomesBiomeProvider cb, int farmY, int tileSizeChunks, int maxTiles) {
+        return new BiomeOkFracGrid(cb, null, cb, null, farmY, tileSizeChunks, maxTiles);
+    }
 
-        this.lru = new LinkedHashMap<>(64, 0.75f, true);
+    /**
+     * Cached provider whose tiles are generated on the calling thread's context from {@code contexts}
+     * (which must hand out CubiomesBiomeProviders with the same seed, version and rules as {@code template}).
+     */
+    static BiomeOkFracGrid createCached(CubiomesBiomeProvider template, BiomeContextPool contexts,
+                                        int farmY, int tileSizeChunks, int maxTiles) {
+        return createCached(template, contexts, null, farmY, tileSizeChunks, maxTiles);
     }
 
-    /** Create a cached/tiled okFrac provider. */
-    public static BiomeOkFracGrid createCached(CubiomesBiomeProvider cb, int farmY, int tileSizeChunks, int maxTiles) {
-        return new BiomeOkFracGrid(cb, farmY, tileSizeChunks, maxTiles);
+    /** Same, reading and writing tiles through {@code store} (may be null; must match the tile size). */
+    static BiomeOkFracGrid createCached(CubiomesBiomeProvider template, BiomeContextPool contexts, BiomeTileStore store,
+                                        int farmY, int tileSizeChunks, int maxTiles) {
+        return new BiomeOkFracGrid(template, contexts, null, store, farmY, tileSizeChunks, maxTiles);
     }
 
     /** okFrac in [0,1] for chunk (cx,cz). */
     public float okFrac(int cx, int cz) {
+        return (16 - Integer.bitCount(blockedMask(cx, cz))) / 16.0f;
+    }
+
+    /** Blocked quart cells of chunk (cx,cz): bit (oz*4+ox) covers blocks [4ox,4ox+3] x [4oz,4oz+3]. */
+    public int blockedMask(int cx, int cz) {
         Tile t = getOrLoadTile(cx, cz);
         int lx = cx - t.baseCx;
         int lz = cz - t.baseCz;
-        if (lx < 0 || lz < 0 || lx >= tileSizeChunks || lz >= tileSizeChunks) return 1.0f;
+        return t.blocked[lz * tileSizeChunks + lx] & 0xFFFF;
+    }
 
-        int v = t.ok[lz * tileSizeChunks + lx] & 0xFF;
-        return v / 255.0f;
+    /**
+     * Quart masks of chunks [kx0, kx0+w) x [kz0, kz0+h) into out (row-major, stride w), copied a
+     * tile row segment at a time instead of one cache lookup per chunk.
+     */
+    void fillMasks(int kx0, int kz0, int w, int h, short[] out) {
+        int T = tileSizeChunks;
+        for (int tz = Math.floorDiv(kz0, T) * T; tz < kz0 + h; tz += T) {
+            int z0 = Math.max(kz0, tz);
+            int z1 = Math.min(kz0 + h, tz + T);
+            for (int tx = Math.floorDiv(kx0, T) * T; tx < kx0 + w; tx += T) {
+                int x0 = Math.max(kx0, tx);
+                int x1 = Math.min(kx0 + w, tx + T);
+                Tile t = getOrLoadTile(tx, tz);
+                for (int z = z0; z < z1; z++) {
+                    System.arraycopy(t.blocked, (z - tz) * T + (x0 - tx), out, (z - kz0) * w + (x0 - kx0), x1 - x0);
+                }
+            }
+        }
+    }
+
+    /** Tiles generated so far (cache misses). */
+    public long loadedTiles() {
+        return loads.get();
     }
 
     private Tile getOrLoadTile(int cx, int cz) {
@@ -73,62 +131,101 @@ public final class BiomeOkFracGrid {
         int baseCz = Math.floorDiv(cz, tileSizeChunks) * tileSizeChunks;
         long key = tileKey(baseCx, baseCz);
 
-        synchronized (lru) {
-            Tile existing = lru.get(key);
-            if (existing != null) return existing;
+        Slot slot = tiles.get(key);
+        if (slot == null) {
+            Slot fresh = new Slot();
+            slot = tiles.putIfAbsent(key, fresh);
+            if (slot == null) {
+                // We own the miss: generate outside any lock; other threads wait on the future.
+                slot = fresh;
+                slot.lastUsed = clock.incrementAndGet();
+                try {
+                    slot.tile.complete(loadTile(baseCx, baseCz));
+                    loads.incrementAndGet();
+                } catch (RuntimeException | Error e) {
+                    tiles.remove(key, slot);
+                    slot.tile.completeExceptionally(e);
+                    throw e;
+                }
+                if (tiles.size() > maxTiles) evict();
+                return slot.tile.join();
+            }
         }
+        slot.lastUsed = clock.incrementAndGet();
+        return slot.tile.join();
+    }
 
-        // Compute outside lock
-        Tile loaded = loadTile(baseCx, baseCz);
-
-        synchronized (lru) {
-            Tile existing = lru.get(key);
-            if (existing != null) return existing;
-
-            lru.put(key, loaded);
-            if (lru.size() > maxTiles) {
-                Map.Entry<Long, Tile> eldest = lru.entrySet().iterator().next();
-                lru.remove(eldest.getKey());
+    /** Drops the least recently used loaded tiles until the cache is back at maxTiles. */
+    private void evict() {
+        while (tiles.size() > maxTiles) {
+            Long oldestKey = null;
+            Slot oldest = null;
+            for (Map.Entry<Long, Slot> e : tiles.entrySet()) {
+                Slot s = e.getValue();
+                if (!s.tile.isDone()) continue;
+                if (oldest == null || s.lastUsed < oldest.lastUsed) {
+                    oldest = s;
+                    oldestKey = e.getKey();
+                }
             }
-            return loaded;
+            if (oldest == null) return;
+            tiles.remove(oldestKey, oldest);
+        }
+    }
+
+    Tile loadTile(int baseCx, int baseCz) {
+        if (store != null) {
+            short[] blocked = new short[tileSizeChunks * tileSizeChunks];
+            if (store.get(baseCx, baseCz, blocked)) return new Tile(baseCx, baseCz, blocked);
         }
+        Tile t = generateTile(baseCx, baseCz);
+        if (store != null) store.put(baseCx, baseCz, t.blocked);
+        return t;
     }
 
-    private Tile loadTile(int baseCx, int baseCz) {
+    private Tile generateTile(int baseCx, int baseCz) {
         int quartW = tileSizeChunks * 4;
         int qx0 = baseCx * 4;
         int qz0 = baseCz * 4;
 
-        int[] plane = cb.genQuartPlane(qx0, qz0, quartW, quartW, yQuart);
-        byte[] ok = new byte[tileSizeChunks * tileSizeChunks];
+        if (shared != null) {
+            synchronized (shared) {
+                return buildTile(baseCx, baseCz, shared.genQuartPlaneBytes(qx0, qz0, quartW, quartW, yQuart));
+            }
+        }
+        CubiomesBiomeProvider cb = (CubiomesBiomeProvider) contexts.get();
+        return buildTile(baseCx, baseCz, cb.genQuartPlaneBytes(qx0, qz0, quartW, quartW, yQuart));
+    }
+
+    /** Quart masks from a byte-id plane (the context's reusable buffer; read before its next call). */
+    private Tile buildTile(int baseCx, int baseCz, java.nio.ByteBuffer plane) {
+        int quartW = tileSizeChunks * 4;
+        short[] blocked = new short[tileSizeChunks * tileSizeChunks];
 
         for (int dz = 0; dz < tileSizeChunks; dz++) {
             for (int dx = 0; dx < tileSizeChunks; dx++) {
                 int qx = dx * 4;
                 int qz = dz * 4;
 
-                int blocked = 0;
+                int mask = 0;
                 for (int oz = 0; oz < 4; oz++) {
                     int row = (qz + oz) * quartW;
                     for (int ox = 0; ox < 4; ox++) {
-                        int id = plane[row + (qx + ox)];
+                        int id = plane.get(row + (qx + ox)) & 0xFF;
 
                         boolean isBlocked = (blockDeepDark && id == deepDarkId)
                                 || (blockMushroomFields && id == mushroomFieldsId);
-                        if (isBlocked) blocked++;
+                        if (isBlocked) mask |= 1 << (oz * 4 + ox);
                     }
                 }
-
-                int okCount = 16 - blocked;
-                int v = (okCount * 255 + 8) / 16;
-                ok[dz * tileSizeChunks + dx] = (byte) v;
+                blocked[dz * tileSizeChunks + dx] = (short) mask;
             }
         }
 
-        return new Tile(baseCx, baseCz, ok);
+        return new Tile(baseCx, baseCz, blocked);
     }
 
     private static long tileKey(int baseCx, int baseCz) {
         return (((long) baseCx) << 32) ^ (baseCz & 0xffffffffL);
     }
-}
\ No newline at end of file
+}
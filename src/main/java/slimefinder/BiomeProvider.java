@@ -7,4 +7,14 @@ package slimefinder;
  */
 public interface BiomeProvider {
     boolean isBlocked(int x, int y, int z);
-}
\ No newline at end of file
+
+    /**
+     * Batch form of isBlocked: out[i] = isBlocked(xs[i], ys[i], zs[i]) for i < n.
+     * Native providers override this to answer all points in one call.
+     */
+    default void isBlockedMany(int n, int[] xs, int[] ys, int[] zs, boolean[] out) {
+        for (int i = 0; i < n; i++) {
+            out[i] = isBlocked(xs[i], ys[i], zs[i]);
+        }
+    }
+}
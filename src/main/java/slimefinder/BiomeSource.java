@@ -0,0 +1,19 @@
+package slimefinder;
+
+/**
+ * Where biome validation and the Top breakdown get blocked-biome answers from.
+ */
+public enum BiomeSource {
+    /** Cached per-chunk quart masks from BiomeOkFracGrid (one quart-plane call per tile). */
+    GRID,
+    /** One block-level lookup per sample point (--samples per axis per chunk); slowest, most exact. */
+    POINTS;
+
+    static BiomeSource parse(String s) {
+        return switch (s.trim().toLowerCase(java.util.Locale.ROOT)) {
+            case "grid" -> GRID;
+            case "points" -> POINTS;
+            default -> throw new IllegalArgumentException("Unknown --biome-source: '" + s + "' (expected grid or points)");
+        };
+    }
+}
@@ -0,0 +1,295 @@
+package slimefinder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Disk tier under BiomeOkFracGrid's in-memory LRU: the per-chunk quart masks of grid tiles, kept
+ * across runs in a memory-mapped file.
+ *
+ * Biome generation only depends on (seed, mc version, farm-y quart) plus the blocking rules, so a
+ * later run on the same world (another --threshold, a larger --m-chunks, a biome-aware search)
+ * reads its tiles back instead of calling cbi_gen_quart_plane again.
+ *
+ * File layout (little-endian):
+ *   0  long  MAGIC
+ *   8  int   FORMAT_VERSION
+ *   12 int   tileSizeChunks
+ *   16 long  seed
+ *   24 int   mc, yQuart, rules (bit 0 = deep dark blocked, bit 1 = mushroom fields blocked)
+ *   36 int   deepDarkId, mushroomFieldsId
+ *   44 int   slots
+ *   48 int   CRC32 of bytes [0,48)
+ *   52..63   reserved
+ *   64 slots entries of ENTRY_HEADER + tileSizeChunks^2 shorts:
+ *        long tileKey, int CRC32 of key and masks, int used (0 = empty)
+ *
+ * The entries are an open-addressing hash table (MAX_PROBES slots from the key's hash). When all
+ * probes are taken, the home slot is overwritten, so the file never grows past its size cap. An
+ * entry whose CRC does not match is treated as a miss and regenerated; a file with a bad header,
+ * another format version or other parameters is recreated empty. A file with another size cap is
+ * reused with the cap it was created with.
+ *
+ * Runs may share a store (e.g. --shard processes side by side): each holds a shared lock on the
+ * file for as long as it has it mapped, and checking or recreating the file needs the exclusive
+ * lock, so a file is never truncated under another run's mapping. Entries written by one run are
+ * seen by the others; a torn entry fails its CRC and is regenerated.
+ */
+final class BiomeTileStore implements AutoCloseable {
+
+    private static final long MAGIC = 0x45524F54534F4942L; // "BIOSTORE" read little-endian
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_FIXED = 64;
+    private static final int ENTRY_HEADER = 16;
+    private static final int MAX_PROBES = 8;
+    private static final long SEGMENT_BYTES = 1L << 30; // per mapping (a MappedByteBuffer is int-indexed)
+
+    private final Path path;
+    private final FileChannel ch;
+    private final int tileSizeChunks;
+    private final int entryBytes;
+    private final int slots;
+    private final int slotsPerSegment;
+    private final MappedByteBuffer[] segments;
+    private final byte[] scratch;
+
+    private long hits;
+    private long misses;
+    private long writes;
+
+    private BiomeTileStore(Path path, FileChannel ch, int tileSizeChunks, int slots) throws IOException {
+        this.path = path;
+        this.ch = ch;
+        this.tileSizeChunks = tileSizeChunks;
+        this.entryBytes = entryBytes(tileSizeChunks);
+        this.slots = slots;
+        this.slotsPerSegment = (int) Math.max(1, SEGMENT_BYTES / entryBytes);
+        this.segments = new MappedByteBuffer[(slots + slotsPerSegment - 1) / slotsPerSegment];
+        this.scratch = new byte[entryBytes];
+
+        for (int s = 0; s < segments.length; s++) {
+            int n = Math.min(slotsPerSegment, slots - s * slotsPerSegment);
+            long off = HEADER_FIXED + (long) s * slotsPerSegment * entryBytes;
+            segments[s] = ch.map(FileChannel.MapMode.READ_WRITE, off, (long) n * entryBytes);
+            segments[s].order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    /**
+     * If {@code pathOrDir} is a directory the file is named after everything the tiles depend on,
+     * so one directory can hold stores for many worlds and farm heights.
+     */
+    static Path resolvePath(String pathOrDir, long seed, int mc, int yQuart, int tileSizeChunks) {
+        File f = new File(pathOrDir);
+        if (f.isDirectory()) {
+            return f.toPath().resolve(String.format("biome-%016x-mc%d-yq%d-t%d.store", seed, mc, yQuart, tileSizeChunks));
+        }
+        return f.toPath();
+    }
+
+    /**
+     * Open the store at {@code path} if it was written for these parameters (with any size cap),
+     * otherwise (missing, corrupt header, other version or parameters) create it empty. Returns
+     * null if another run holds the file for other parameters, so it cannot be recreated.
+     */
+    static BiomeTileStore openOrCreate(Path path, long seed, int mc, int yQuart, int tileSizeChunks,
+                                       CubiomesBiomeProvider rules, long maxBytes) throws IOException {
+        int slots = (int) Math.min(Integer.MAX_VALUE, Math.max(MAX_PROBES, (maxBytes - HEADER_FIXED) / entryBytes(tileSizeChunks)));
+        ByteBuffer want = header(seed, mc, yQuart, tileSizeChunks, rules, slots);
+
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        FileChannel ch = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            BiomeTileStore s = open(path, ch, want, tileSizeChunks);
+            if (s == null) ch.close();
+            return s;
+        } catch (OverlappingFileLockException e) {
+            ch.close();
+            System.out.println("[WARN] Biome store " + path + " is already open in this process; generating all tiles");
+            return null;
+        } catch (IOException | RuntimeException e) {
+            ch.close();
+            throw e;
+        }
+    }
+
+    /** Check (and if need be recreate) the file under the exclusive lock, then map it under a shared one. */
+    private static BiomeTileStore open(Path path, FileChannel ch, ByteBuffer want, int tileSizeChunks) throws IOException {
+        boolean created = false;
+        FileLock exclusive = ch.tryLock();
+        if (exclusive != null) {
+            // No other run has the file open.
+            String why = check(ch, want, tileSizeChunks);
+            if (why != null) {
+                if (ch.size() > 0) System.out.println("Biome store: " + path + " " + why + "; recreating");
+                long length = HEADER_FIXED + (long) want.getInt(44) * entryBytes(tileSizeChunks);
+                // Zero length first so every old entry reads back as empty; the file stays sparse.
+                ch.truncate(0);
+                ch.write(ByteBuffer.allocate(1), length - 1);
+                ch.write(want.duplicate(), 0);
+                created = true;
+            }
+            exclusive.release();
+        }
+
+        ch.lock(0, Long.MAX_VALUE, true); // held until close(); waits while another run recreates the file
+        String why = check(ch, want, tileSizeChunks);
+        if (why != null) {
+            System.out.println("[WARN] Biome store " + path + " is in use by another run and " + why + "; generating all tiles");
+            return null;
+        }
+        int slots = readHeader(ch).getInt(44);
+        if (created) {
+            System.out.println("Biome store: created " + path + " (" + slots + " tiles, "
+                    + ((HEADER_FIXED + (long) slots * entryBytes(tileSizeChunks)) >> 20) + " MB cap)");
+        } else if (slots != want.getInt(44)) {
+            System.out.println("Biome store: reusing " + path + " with the " + slots + "-tile cap it was created with"
+                    + " (delete it to apply --biome-store-max-mb)");
+        } else {
+            System.out.println("Biome store: reusing " + path);
+        }
+        return new BiomeTileStore(path, ch, tileSizeChunks, slots);
+    }
+
+    private static int entryBytes(int tileSizeChunks) {
+        return ENTRY_HEADER + 2 * tileSizeChunks * tileSizeChunks;
+    }
+
+    private static ByteBuffer header(long seed, int mc, int yQuart, int tileSizeChunks,
+                                     CubiomesBiomeProvider rules, int slots) {
+        ByteBuffer h = ByteBuffer.allocate(HEADER_FIXED).order(ByteOrder.LITTLE_ENDIAN);
+        h.putLong(0, MAGIC);
+        h.putInt(8, FORMAT_VERSION);
+        h.putInt(12, tileSizeChunks);
+        h.putLong(16, seed);
+        h.putInt(24, mc);
+        h.putInt(28, yQuart);
+        h.putInt(32, (rules.blocksDeepDark() ? 1 : 0) | (rules.blocksMushroomFields() ? 2 : 0));
+        h.putInt(36, rules.deepDarkId());
+        h.putInt(40, rules.mushroomFieldsId());
+        h.putInt(44, slots);
+
+        CRC32 crc = new CRC32();
+        crc.update(h.array(), 0, 48);
+        h.putInt(48, (int) crc.getValue());
+        return h;
+    }
+
+    /** The header, or null if the file is shorter than one. */
+    private static ByteBuffer readHeader(FileChannel ch) throws IOException {
+        ByteBuffer h = ByteBuffer.allocate(HEADER_FIXED).order(ByteOrder.LITTLE_ENDIAN);
+        while (h.hasRemaining()) {
+            if (ch.read(h, h.position()) < 0) return null;
+        }
+        return h;
+    }
+
+    /** Why the file cannot be reused, or null if its header matches {@code want} up to the size cap. */
+    private static String check(FileChannel ch, ByteBuffer want, int tileSizeChunks) throws IOException {
+        ByteBuffer h = readHeader(ch);
+        if (h == null) return "is truncated (header)";
+        if (h.getLong(0) != MAGIC) return "is not a biome store";
+        if (h.getInt(8) != FORMAT_VERSION) return "has format version " + h.getInt(8);
+
+        CRC32 crc = new CRC32();
+        crc.update(h.array(), 0, 48);
+        if ((int) crc.getValue() != h.getInt(48)) return "has a corrupt header";
+        if (!java.util.Arrays.equals(h.array(), 0, 44, want.array(), 0, 44)) {
+            return "was written for another seed, version, farm-y or tile size";
+        }
+        long length = HEADER_FIXED + (long) h.getInt(44) * entryBytes(tileSizeChunks);
+        if (h.getInt(44) < MAX_PROBES || ch.size() != length) return "has the wrong length (" + ch.size() + " bytes)";
+        return null;
+    }
+
+    /** Copy the masks of tile (baseCx, baseCz) into {@code out}; false on a miss or a bad entry. */
+    synchronized boolean get(int baseCx, int baseCz, short[] out) {
+        long key = tileKey(baseCx, baseCz);
+        int home = home(key);
+        for (int p = 0; p < MAX_PROBES; p++) {
+            int slot = (home + p) % slots;
+            MappedByteBuffer seg = segments[slot / slotsPerSegment];
+            int off = (slot % slotsPerSegment) * entryBytes;
+            if (seg.getInt(off + 12) == 0) break; // empty: the key was never stored past here
+            if (seg.getLong(off) != key) continue;
+
+            seg.get(off, scratch, 0, entryBytes);
+            if (entryCrc(scratch) != seg.getInt(off + 8)) {
+                System.out.println("[WARN] Biome store entry " + slot + " of " + path + " failed its checksum; regenerating");
+                break;
+            }
+            ByteBuffer.wrap(scratch, ENTRY_HEADER, entryBytes - ENTRY_HEADER)
+                    .order(ByteOrder.LITTLE_ENDIAN).asShortBuffer().get(out, 0, tileSizeChunks * tileSizeChunks);
+            hits++;
+            return true;
+        }
+        misses++;
+        return false;
+    }
+
+    /** Store the masks of tile (baseCx, baseCz), replacing its home slot if every probe is taken. */
+    synchronized void put(int baseCx, int baseCz, short[] masks) {
+        long key = tileKey(baseCx, baseCz);
+        int home = home(key);
+        int slot = home;
+        for (int p = 0; p < MAX_PROBES; p++) {
+            int s = (home + p) % slots;
+            MappedByteBuffer seg = segments[s / slotsPerSegment];
+            int off = (s % slotsPerSegment) * entryBytes;
+            if (seg.getInt(off + 12) == 0 || seg.getLong(off) == key) {
+                slot = s;
+                break;
+            }
+        }
+
+        ByteBuffer e = ByteBuffer.wrap(scratch).order(ByteOrder.LITTLE_ENDIAN);
+        e.putLong(0, key);
+        e.putInt(8, 0);
+        e.putInt(12, 1);
+        e.position(ENTRY_HEADER);
+        e.asShortBuffer().put(masks, 0, tileSizeChunks * tileSizeChunks);
+        e.putInt(8, entryCrc(scratch));
+
+        MappedByteBuffer seg = segments[slot / slotsPerSegment];
+        seg.put((slot % slotsPerSegment) * entryBytes, scratch, 0, entryBytes);
+        writes++;
+    }
+
+    /** CRC32 of the key and the masks (not the CRC or used fields). */
+    private int entryCrc(byte[] entry) {
+        CRC32 crc = new CRC32();
+        crc.update(entry, 0, 8);
+        crc.update(entry, ENTRY_HEADER, entryBytes - ENTRY_HEADER);
+        return (int) crc.getValue();
+    }
+
+    private int home(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) Long.remainderUnsigned(h ^ (h >>> 29), slots);
+    }
+
+    private static long tileKey(int baseCx, int baseCz) {
+        return (((long) baseCx) << 32) ^ (baseCz & 0xffffffffL);
+    }
+
+    synchronized long hits() { return hits; }
+    synchronized long misses() { return misses; }
+    synchronized long writes() { return writes; }
+
+    @Override
+    public void close() throws IOException {
+        for (MappedByteBuffer seg : segments) seg.force();
+        ch.close();
+    }
+}
@@ -0,0 +1,329 @@
+package slimefinder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Biome validation of fast-search candidates: a slime chunk stops counting when the part of it
+ * inside the 128-block circle is entirely in a blocking biome.
+ *
+ * Candidates are split across the pool's workers; each worker asks the BiomeContextPool for its
+ * own provider, and scores land in a per-candidate array, so the output order does not depend
+ * on scheduling. All sample points of one candidate go to the provider in one batch.
+ *
+ * With a BiomeOkFracGrid the same test runs on cached per-chunk quart masks instead: the sample
+ * points become the 16 quart-cell centers of each chunk (the 4x4 default sample grid), resolved at
+ * quart resolution, and candidates are visited grouped by grid tile so each tile is loaded once.
+ */
+final class BiomeValidator {
+
+    private static final int CR = KernelWeights.CR;
+    private static final int ROWS_PER_TASK = 4;
+
+    private final long seed;
+    private final KernelWeights kernel;
+    private final int farmY;
+    private final int samples;
+    private final BiomeOkFracGrid grid; // null = per-point provider lookups
+
+    BiomeValidator(long seed, KernelWeights kernel, int farmY, int samples) {
+        this(seed, kernel, farmY, samples, null);
+    }
+
+    BiomeValidator(long seed, KernelWeights kernel, int farmY, int samples, BiomeOkFracGrid grid) {
+        this.seed = seed;
+        this.kernel = kernel;
+        this.farmY = farmY;
+        this.samples = Math.max(1, samples);
+        this.grid = grid;
+    }
+
+    /**
+     * Validated candidates scoring at least thrInt, in input order, with their updated scores.
+     * Every worker of {@code exec} uses its own provider from {@code contexts}.
+     */
+    List<TopK.Item> validate(ForkJoinPool exec, BiomeContextPool contexts, List<TopK.Item> candidates, int thrInt) {
+        int[] scores = new int[candidates.size()];
+        exec.invoke(new Rows(contexts, candidates, spatialOrder(candidates), scores, 0, candidates.size()));
+
+        List<TopK.Item> kept = new ArrayList<>();
+        for (int i = 0; i < scores.length; i++) {
+            if (scores[i] >= thrInt) {
+                TopK.Item c = candidates.get(i);
+                kept.add(new TopK.Item(c.x, c.z, scores[i]));
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * Candidate indices grouped by 32x32-chunk cell (then by position), so neighbouring candidates
+     * land in the same task and share grid tiles while they are hot.
+     */
+    private static int[] spatialOrder(List<TopK.Item> candidates) {
+        int n = candidates.size();
+        int[] order = new int[n];
+        if (n >= (1 << 23)) {
+            for (int i = 0; i < n; i++) order[i] = i;
+            return order;
+        }
+        // key = cellZ (20 bits) | cellX (20 bits) | index (23 bits); coordinates are < 2^27 blocks.
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++) {
+            TopK.Item c = candidates.get(i);
+            long cz = Math.floorDiv(c.z, 512) + (1 << 19);
+            long cx = Math.floorDiv(c.x, 512) + (1 << 19);
+            keys[i] = (cz << 43) | (cx << 23) | i;
+        }
+        java.util.Arrays.sort(keys);
+        for (int i = 0; i < n; i++) order[i] = (int) (keys[i] & ((1 << 23) - 1));
+        return order;
+    }
+
+    /** Slime chunks in the circle around block (x0, z0) minus those whose covered portion is fully blocked. */
+    int validatedScore(BiomeProvider biome, int x0, int z0) {
+        return validatedScore(biome, x0, z0, newBatch());
+    }
+
+    /**
+     * Same, reusing {@code batch}: the sample points of every slime chunk around the center are
+     * collected first and sent to the provider in a single isBlockedMany call.
+     */
+    int validatedScore(BiomeProvider biome, int x0, int z0, Batch batch) {
+        final int R2 = KernelWeights.RADIUS_BLOCKS * KernelWeights.RADIUS_BLOCKS;
+        int cX = Math.floorDiv(x0, 16);
+        int cZ = Math.floorDiv(z0, 16);
+
+        int count = 0;
+        batch.n = 0;
+
+        for (int dz = -CR; dz <= CR; dz++) {
+            for (int dx = -CR; dx <= CR; dx++) {
+                if (!kernel.intersects(dx, dz)) continue;
+
+                int kx = cX + dx;
+                int kz = cZ + dz;
+                if (!SlimeChunk.isSlimeChunk(seed, kx, kz)) continue;
+
+                addCirclePortionSamples(batch, x0, z0, kx, kz, dx, dz, R2);
+                batch.chunkEnd[count++] = batch.n;
+            }
+        }
+
+        biome.isBlockedMany(batch.n, batch.xs, batch.ys, batch.zs, batch.blocked);
+
+        // subtract 1 for each chunk whose circle-covered portion is fully blocked biome
+        int blocked = 0;
+        int start = 0;
+        for (int c = 0; c < count; c++) {
+            int end = batch.chunkEnd[c];
+            if (end > start) {
+                boolean all = true;
+                for (int i = start; i < end && all; i++) all = batch.blocked[i];
+                if (all) blocked++;
+            }
+            start = end;
+        }
+        return count - blocked;
+    }
+
+    /**
+     * validatedScore on the grid: a chunk's circle portion is fully blocked when every quart cell
+     * whose center is inside the circle (all 16 for fully covered chunks) is blocked; if no cell
+     * center is inside, the cell holding the chunk center decides, as long as that center is inside.
+     */
+    int gridScore(int x0, int z0) {
+        final int R2 = KernelWeights.RADIUS_BLOCKS * KernelWeights.RADIUS_BLOCKS;
+        int cX = Math.floorDiv(x0, 16);
+        int cZ = Math.floorDiv(z0, 16);
+
+        int count = 0;
+        int blocked = 0;
+
+        for (int dz = -CR; dz <= CR; dz++) {
+            for (int dx = -CR; dx <= CR; dx++) {
+                if (!kernel.intersects(dx, dz)) continue;
+
+                int kx = cX + dx;
+                int kz = cZ + dz;
+                if (!SlimeChunk.isSlimeChunk(seed, kx, kz)) continue;
+                count++;
+
+                int portion = portionMask(x0, z0, kx, kz, kernel.isFull(dx, dz), R2);
+                if (portion != 0 && (grid.blockedMask(kx, kz) & portion) == portion) {
+                    blocked++;
+                }
+            }
+        }
+        return count - blocked;
+    }
+
+    /**
+     * portionMask for a center on a chunk origin, per kernel offset: entry (dz+CR)*(2CR+1)+(dx+CR).
+     * Fast-search centers are always chunk origins, so the biome-aware search can use this table.
+     */
+    static int[] portionTable(KernelWeights kernel) {
+        final int R2 = KernelWeights.RADIUS_BLOCKS * KernelWeights.RADIUS_BLOCKS;
+        int side = 2 * CR + 1;
+        int[] table = new int[side * side];
+        for (int dz = -CR; dz <= CR; dz++) {
+            for (int dx = -CR; dx <= CR; dx++) {
+                if (!kernel.intersects(dx, dz)) continue;
+                table[(dz + CR) * side + (dx + CR)] = portionMask(0, 0, dx, dz, kernel.isFull(dx, dz), R2);
+            }
+        }
+        return table;
+    }
+
+    /** Quart cells (bit oz*4+ox) that represent the circle-covered part of a chunk; 0 if none. */
+    private static int portionMask(int x0, int z0, int chunkX, int chunkZ, boolean full, int R2) {
+        if (full) return 0xFFFF;
+        int xMin = chunkX * 16;
+        int zMin = chunkZ * 16;
+
+        int mask = 0;
+        for (int oz = 0; oz < 4; oz++) {
+            int dz0 = zMin + 4 * oz + 2 - z0;
+            for (int ox = 0; ox < 4; ox++) {
+                int dx0 = xMin + 4 * ox + 2 - x0;
+                if (dx0 * dx0 + dz0 * dz0 <= R2) mask |= 1 << (oz * 4 + ox);
+            }
+        }
+        if (mask == 0) {
+            // Chunk center (8,8) lies in quart cell (2,2).
+            int dx0 = xMin + 8 - x0;
+            int dz0 = zMin + 8 - z0;
+            if (dx0 * dx0 + dz0 * dz0 <= R2) mask = 1 << (2 * 4 + 2);
+        }
+        return mask;
+    }
+
+    /**
+     * Appends the points that decide whether the circle-covered portion of a chunk is fully
+     * blocked: the sample grid points inside the circle, or the chunk center if none are (and it
+     * is inside). No points means the chunk is never considered blocked.
+     */
+    private void addCirclePortionSamples(
+            Batch batch,
+            int x0, int z0,
+            int chunkX, int chunkZ,
+            int dx, int dz,
+            int R2
+    ) {
+        // Chunk bounds in block coords
+        int xMin = chunkX * 16;
+        int zMin = chunkZ * 16;
+
+        // If fully covered, sample whole chunk
+        boolean full = kernel.isFull(dx, dz);
+
+        int first = batch.n;
+
+        // Sample points at cell centers within the chunk
+        // Use at least 4x4; user can raise --samples for better accuracy.
+        int s = Math.max(4, samples);
+
+        for (int iz = 0; iz < s; iz++) {
+            for (int ix = 0; ix < s; ix++) {
+                int sx = xMin + (int)((ix + 0.5) * (16.0 / s));
+                int sz = zMin + (int)((iz + 0.5) * (16.0 / s));
+
+                if (!full) {
+                    int dx0 = sx - x0;
+                    int dz0 = sz - z0;
+                    if (dx0 * dx0 + dz0 * dz0 > R2) {
+                        continue; // outside circle portion
+                    }
+                }
+                batch.add(sx, sz);
+            }
+        }
+
+        // If no samples fell inside due to coarse grid, fall back to checking chunk center if it lies inside circle
+        if (batch.n == first) {
+            int sx = xMin + 8;
+            int sz = zMin + 8;
+            int dx0 = sx - x0;
+            int dz0 = sz - z0;
+            if (dx0 * dx0 + dz0 * dz0 <= R2) {
+                batch.add(sx, sz);
+            }
+        }
+    }
+
+    /** Scratch for one worker: room for every sample point of one candidate center. */
+    Batch newBatch() {
+        int s = Math.max(4, samples);
+        return new Batch((2 * CR + 1) * (2 * CR + 1), (2 * CR + 1) * (2 * CR + 1) * s * s, farmY);
+    }
+
+    static final class Batch {
+        final int[] xs;
+        final int[] ys;
+        final int[] zs;
+        final boolean[] blocked;
+        final int[] chunkEnd; // end offset of each slime chunk's points
+        int n;
+
+        Batch(int maxChunks, int maxPoints, int y) {
+            xs = new int[maxPoints];
+            ys = new int[maxPoints];
+            zs = new int[maxPoints];
+            blocked = new boolean[maxPoints];
+            chunkEnd = new int[maxChunks];
+            java.util.Arrays.fill(ys, y);
+        }
+
+        void add(int x, int z) {
+            xs[n] = x;
+            zs[n] = z;
+            n++;
+        }
+    }
+
+    /** Candidates order[lo, hi); halves until ROWS_PER_TASK are left. */
+    private final class Rows extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final BiomeContextPool contexts;
+        private final List<TopK.Item> candidates;
+        private final int[] order;
+        private final int[] scores;
+        private final int lo;
+        private final int hi;
+
+        Rows(BiomeContextPool contexts, List<TopK.Item> candidates, int[] order, int[] scores, int lo, int hi) {
+            this.contexts = contexts;
+            this.candidates = candidates;
+            this.order = order;
+            this.scores = scores;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo <= ROWS_PER_TASK) {
+                if (grid != null) {
+                    for (int i = lo; i < hi; i++) {
+                        TopK.Item c = candidates.get(order[i]);
+                        scores[order[i]] = gridScore(c.x, c.z);
+                    }
+                    return;
+                }
+                BiomeProvider biome = contexts.get();
+                Batch batch = newBatch();
+                for (int i = lo; i < hi; i++) {
+                    TopK.Item c = candidates.get(order[i]);
+                    scores[order[i]] = validatedScore(biome, c.x, c.z, batch);
+                }
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new Rows(contexts, candidates, order, scores, lo, mid),
+                    new Rows(contexts, candidates, order, scores, mid, hi));
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package slimefinder;
+
+/**
+ * Popcount counting engine: a center's score is the sum over the 17 kernel rows of
+ * Long.bitCount(window & rowSpanMask) on the tile's {@link SlimeBitmap}. Nothing per center
+ * is stored; the scan reads counts on demand.
+ */
+final class BitCounter {
+
+    private static final int CR = KernelWeights.CR;
+    private static final int SIZE = KernelWeights.SIZE;
+
+    // Per kernel row d = dz + CR: bitmap column offset of the span start and the span mask.
+    private final int[] colOff = new int[SIZE];
+    private final long[] mask = new long[SIZE];
+
+    BitCounter(KernelWeights kernel) {
+        for (int dz = -CR; dz <= CR; dz++) {
+            int lo = kernel.spanLo(dz);
+            int len = kernel.spanHi(dz) - lo + 1;
+            colOff[dz + CR] = (len <= 0) ? CR : CR + lo;
+            mask[dz + CR] = (len <= 0) ? 0L : (1L << len) - 1;
+        }
+    }
+
+    /**
+     * Kernel count for the center at tile column c, tile row r, where the bitmap covers the
+     * tile plus a CR halo (so bitmap row r+dz+CR, column c+dx+CR is chunk offset (dx,dz)).
+     */
+    int count(SlimeBitmap bm, int c, int r) {
+        int s = 0;
+        for (int d = 0; d < SIZE; d++) {
+            s += Long.bitCount(bm.window(r + d, c + colOff[d]) & mask[d]);
+        }
+        return s;
+    }
+}
@@ -0,0 +1,267 @@
+package slimefinder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import slimefinder.SlimeFinder.Tile;
+
+/**
+ * Append-only journal of finished tiles (--checkpoint), so a search that is killed half way can
+ * continue with --resume instead of starting over.
+ *
+ * Every finished tile appends its bounds and the keys of its local top-K that can still reach the
+ * global one. Records are buffered and written (and forced to disk) every FLUSH_NANOS or
+ * FLUSH_BYTES, so a kill loses at most the tiles of the last interval (a SIGTERM flushes what is
+ * buffered). On resume the journal rebuilds the top-K and the set of tiles the scheduler skips.
+ *
+ * File layout (little-endian):
+ *   0  long  MAGIC
+ *   8  int   FORMAT_VERSION
+ *   12 int   flags (bit 0: biome-aware scores)
+ *   16 long  seed
+ *   24 long  threshold (Double.doubleToLongBits)
+ *   32 int   mChunks, innerChunks, topk, tileRows, tileCols, mcId, farmY (last two 0 unless biome-aware)
+ *   60 int   CRC32 of bytes [0,60)
+ *   64 records: int cz0, cz1, cx0, cx1, count; count PackedTopK keys; int CRC32 of the record
+ *
+ * A record cut short by a kill, or one that fails its CRC, ends the journal: it and anything after
+ * it are truncated on resume and those tiles run again.
+ */
+final class CheckpointJournal implements AutoCloseable {
+
+    private static final long MAGIC = 0x3154504B434D4C53L; // "SLMCKPT1" read little-endian
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER = 64;
+    private static final int RECORD_HEADER = 20;
+    private static final long FLUSH_NANOS = 10_000_000_000L;
+    private static final int FLUSH_BYTES = 1 << 20;
+
+    /** Everything the journaled tiles depend on; a resume must match it exactly. */
+    record Fingerprint(long seed, double threshold, int mChunks, int innerChunks, int topk,
+                       int tileRows, int tileCols, boolean biomeAware, int mcId, int farmY) {}
+
+    private final Path path;
+    private final FileChannel ch;
+    private final Set<Tile> resumed;
+    private final long resumedCenters;
+    private ByteBuffer pending = ByteBuffer.allocate(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+    private long pos;
+    private long lastFlush = System.nanoTime();
+    private long appended;
+    private boolean closed;
+    private final Thread flushOnExit;
+
+    private CheckpointJournal(Path path, FileChannel ch, long pos, Set<Tile> resumed, long resumedCenters) {
+        this.path = path;
+        this.ch = ch;
+        this.pos = pos;
+        this.resumed = resumed;
+        this.resumedCenters = resumedCenters;
+        // Spot instances get a SIGTERM before they go away: keep the tiles finished since the last flush.
+        this.flushOnExit = new Thread(() -> {
+            try {
+                flush();
+            } catch (IOException ignored) {
+                // nothing left to do on the way out
+            }
+        }, "slimefinder-checkpoint-flush");
+        Runtime.getRuntime().addShutdownHook(flushOnExit);
+    }
+
+    /** Header of an existing journal, or null if there is none; throws IllegalStateException if it is not one. */
+    static Fingerprint readHeader(Path path) throws IOException {
+        if (!Files.exists(path)) return null;
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer h = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            while (h.hasRemaining()) {
+                if (ch.read(h, h.position()) < 0) throw new IllegalStateException(path + " is not a checkpoint journal (truncated header)");
+            }
+            if (h.getLong(0) != MAGIC) throw new IllegalStateException(path + " is not a checkpoint journal");
+            if (h.getInt(8) != FORMAT_VERSION) throw new IllegalStateException(path + " has format version " + h.getInt(8));
+            CRC32 crc = new CRC32();
+            crc.update(h.array(), 0, 60);
+            if ((int) crc.getValue() != h.getInt(60)) throw new IllegalStateException(path + " has a corrupt header");
+            return new Fingerprint(h.getLong(16), Double.longBitsToDouble(h.getLong(24)), h.getInt(32), h.getInt(36),
+                    h.getInt(40), h.getInt(44), h.getInt(48), (h.getInt(12) & 1) != 0, h.getInt(52), h.getInt(56));
+        }
+    }
+
+    /** A new, empty journal at {@code path} (an existing file is replaced). */
+    static CheckpointJournal create(Path path, Fingerprint fp) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        FileChannel ch = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.READ, StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer h = header(fp);
+        while (h.hasRemaining()) ch.write(h, h.position());
+        ch.force(true);
+        return new CheckpointJournal(path, ch, HEADER, new HashSet<>(), 0);
+    }
+
+    /**
+     * Reopens the journal at {@code path} for appending, offering every journaled key to
+     * {@code top}. The header must equal {@code fp}, otherwise IllegalStateException names the
+     * first field that differs.
+     */
+    static CheckpointJournal resume(Path path, Fingerprint fp, PackedTopK top) throws IOException {
+        Fingerprint had = readHeader(path);
+        if (had == null) throw new IllegalStateException(path + " does not exist");
+        String why = mismatch(had, fp);
+        if (why != null) throw new IllegalStateException(path + " belongs to another search (" + why + ")");
+
+        FileChannel ch = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            Set<Tile> done = new HashSet<>();
+            long centers = 0;
+            long pos = HEADER;
+            long size = ch.size();
+            ByteBuffer rh = ByteBuffer.allocate(RECORD_HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            while (pos + RECORD_HEADER <= size) {
+                rh.clear();
+                while (rh.hasRemaining()) ch.read(rh, pos + rh.position());
+                int count = rh.getInt(16);
+                long len = RECORD_HEADER + 8L * count + 4;
+                if (count < 0 || count > fp.topk() || pos + len > size) break;
+
+                ByteBuffer rec = ByteBuffer.allocate((int) len).order(ByteOrder.LITTLE_ENDIAN);
+                while (rec.hasRemaining()) ch.read(rec, pos + rec.position());
+                CRC32 crc = new CRC32();
+                crc.update(rec.array(), 0, (int) len - 4);
+                if ((int) crc.getValue() != rec.getInt((int) len - 4)) break;
+
+                Tile t = new Tile(rec.getInt(0), rec.getInt(4), rec.getInt(8), rec.getInt(12));
+                if (done.add(t)) {
+                    for (int i = 0; i < count; i++) top.offer(rec.getLong(RECORD_HEADER + 8 * i));
+                    centers += (long) (t.cz1() - t.cz0() + 1) * (t.cx1() - t.cx0() + 1);
+                }
+                pos += len;
+            }
+            if (pos < size) {
+                System.out.println("Checkpoint: dropping " + (size - pos) + " bytes of unfinished records at the end of " + path);
+                ch.truncate(pos);
+            }
+            return new CheckpointJournal(path, ch, pos, done, centers);
+        } catch (IOException | RuntimeException e) {
+            ch.close();
+            throw e;
+        }
+    }
+
+    /** The first field of {@code have} that differs from {@code want}, or null. */
+    private static String mismatch(Fingerprint have, Fingerprint want) {
+        if (have.seed() != want.seed()) return "seed " + have.seed();
+        if (Double.compare(have.threshold(), want.threshold()) != 0) return "threshold " + have.threshold();
+        if (have.mChunks() != want.mChunks() || have.innerChunks() != want.innerChunks()) {
+            return "region m=" + have.mChunks() + " inner=" + have.innerChunks();
+        }
+        if (have.topk() != want.topk()) return "topk " + have.topk();
+        if (have.tileRows() != want.tileRows() || have.tileCols() != want.tileCols()) {
+            return "tiles " + have.tileRows() + " x " + have.tileCols();
+        }
+        if (have.biomeAware() != want.biomeAware() || have.mcId() != want.mcId() || have.farmY() != want.farmY()) {
+            return have.biomeAware() ? "biome-aware scores for mc " + have.mcId() + " at y=" + have.farmY() : "no biome-aware scores";
+        }
+        return null;
+    }
+
+    private static ByteBuffer header(Fingerprint fp) {
+        ByteBuffer h = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+        h.putLong(0, MAGIC);
+        h.putInt(8, FORMAT_VERSION);
+        h.putInt(12, fp.biomeAware() ? 1 : 0);
+        h.putLong(16, fp.seed());
+        h.putLong(24, Double.doubleToLongBits(fp.threshold()));
+        h.putInt(32, fp.mChunks());
+        h.putInt(36, fp.innerChunks());
+        h.putInt(40, fp.topk());
+        h.putInt(44, fp.tileRows());
+        h.putInt(48, fp.tileCols());
+        h.putInt(52, fp.mcId());
+        h.putInt(56, fp.farmY());
+        CRC32 crc = new CRC32();
+        crc.update(h.array(), 0, 60);
+        h.putInt(60, (int) crc.getValue());
+        return h;
+    }
+
+    /** True if the tile was finished by an earlier run (safe to call from any worker). */
+    boolean isDone(Tile t) {
+        return resumed.contains(t);
+    }
+
+    int resumedTiles() { return resumed.size(); }
+    long resumedCenters() { return resumedCenters; }
+    synchronized long appended() { return appended; }
+
+    /**
+     * Record a finished tile and its local top-K. Keys below {@code floorKey} (the search-wide
+     * k-th best so far) can never make the final top-K and are left out.
+     */
+    void append(Tile t, PackedTopK local, long floorKey) {
+        long[] keys = local.toSortedDesc();
+        int n = 0;
+        while (n < keys.length && keys[n] >= floorKey) n++;
+
+        int len = RECORD_HEADER + 8 * n + 4;
+        ByteBuffer rec = ByteBuffer.allocate(len).order(ByteOrder.LITTLE_ENDIAN);
+        rec.putInt(t.cz0()).putInt(t.cz1()).putInt(t.cx0()).putInt(t.cx1()).putInt(n);
+        for (int i = 0; i < n; i++) rec.putLong(keys[i]);
+        CRC32 crc = new CRC32();
+        crc.update(rec.array(), 0, len - 4);
+        rec.putInt((int) crc.getValue());
+        rec.flip();
+
+        synchronized (this) {
+            if (pending.remaining() < len) {
+                ByteBuffer bigger = ByteBuffer.allocate(Math.max(2 * pending.capacity(), pending.position() + len))
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                pending.flip();
+                bigger.put(pending);
+                pending = bigger;
+            }
+            pending.put(rec);
+            appended++;
+            if (pending.position() >= FLUSH_BYTES || System.nanoTime() - lastFlush >= FLUSH_NANOS) {
+                try {
+                    flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to write checkpoint " + path, e);
+                }
+            }
+        }
+    }
+
+    /** Write buffered records and force them to disk. */
+    synchronized void flush() throws IOException {
+        if (closed) return;
+        pending.flip();
+        while (pending.hasRemaining()) pos += ch.write(pending, pos);
+        pending.clear();
+        ch.force(false);
+        lastFlush = System.nanoTime();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            closed = true;
+            ch.close();
+            try {
+                Runtime.getRuntime().removeShutdownHook(flushOnExit);
+            } catch (IllegalStateException ignored) {
+                // already shutting down
+            }
+        }
+    }
+}
@@ -30,16 +30,26 @@ public final class ChunkClassifier {
     public static double biomeOkFrac(BiomeProvider biome, int farmY, int chunkX, int chunkZ, int samples) {
         if (biome == null) return 1.0;
 
-        int ok = 0;
         int total = samples * samples;
+        int[] xs = new int[total];
+        int[] ys = new int[total];
+        int[] zs = new int[total];
+        boolean[] blocked = new boolean[total];
 
+        int n = 0;
         for (int i = 0; i < samples; i++) {
             for (int k = 0; k < samples; k++) {
-                int x = 16 * chunkX + (int)((i + 0.5) * (16.0 / samples));
-                int z = 16 * chunkZ + (int)((k + 0.5) * (16.0 / samples));
-                if (!biome.isBlocked(x, farmY, z)) ok++;
+                xs[n] = 16 * chunkX + (int)((i + 0.5) * (16.0 / samples));
+                ys[n] = farmY;
+                zs[n] = 16 * chunkZ + (int)((k + 0.5) * (16.0 / samples));
+                n++;
             }
         }
+        // One batch per chunk instead of one native call per sample.
+        biome.isBlockedMany(n, xs, ys, zs, blocked);
+
+        int ok = 0;
+        for (int i = 0; i < n; i++) if (!blocked[i]) ok++;
         return ok / (double)total;
     }
 
@@ -51,6 +61,19 @@ public final class ChunkClassifier {
             int samples,
             BiomeProvider biome
     ) {
+        return classify(seed, x0, z0, cr, (kx, kz) -> biomeOkFrac(biome, farmY, kx, kz, samples));
+    }
+
+    /** Same breakdown with okFrac taken from the cached quart grid (its own farm Y). */
+    public static Breakdown classifyForCenter(long seed, int x0, int z0, int cr, BiomeOkFracGrid grid) {
+        return classify(seed, x0, z0, cr, grid::okFrac);
+    }
+
+    private interface OkFrac {
+        double of(int chunkX, int chunkZ);
+    }
+
+    private static Breakdown classify(long seed, int x0, int z0, int cr, OkFrac okFrac) {
         int cX = Math.floorDiv(x0, 16);
         int cZ = Math.floorDiv(z0, 16);
 
@@ -63,7 +86,7 @@ public final class ChunkClassifier {
                 double cov = CircleOverlap.fractionInCircle(x0, z0, kx, kz, 128);
                 if (cov <= 0.0) continue;
 
-                double okf = biomeOkFrac(biome, farmY, kx, kz, samples);
+                double okf = okFrac.of(kx, kz);
                 if (okf <= 0.0) continue; // fully blocked
 
                 boolean fullCov = cov >= (1.0 - 1e-12);
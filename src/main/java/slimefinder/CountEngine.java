@@ -0,0 +1,23 @@
+package slimefinder;
+
+/**
+ * How processTile turns slime flags into per-center counts. All engines give identical counts;
+ * they only differ in memory access pattern, so they can be compared on the same inputs.
+ */
+public enum CountEngine {
+    /** Scatter +1 from every slime chunk into each center whose circle it touches (reference). */
+    SCATTER,
+    /** Per-row prefix sums over the slime rows; each center sums 17 kernel row spans. */
+    SPAN,
+    /** Popcount of 17 row-span masks over the bit-packed slime map; no per-center storage. */
+    BITS;
+
+    static CountEngine parse(String s) {
+        return switch (s.trim().toLowerCase(java.util.Locale.ROOT)) {
+            case "scatter" -> SCATTER;
+            case "span" -> SPAN;
+            case "bits" -> BITS;
+            default -> throw new IllegalArgumentException("Unknown --engine: '" + s + "' (expected scatter, span or bits)");
+        };
+    }
+}
@@ -1,6 +1,7 @@
 package slimefinder;
 
 import com.sun.jna.Library;
+import com.sun.jna.Memory;
 import com.sun.jna.Native;
 import com.sun.jna.Pointer;
 
@@ -15,8 +16,12 @@ public final class CubiomesBiomeProvider implements BiomeProvider, AutoCloseable
 
         int cbi_is_blocked(Pointer ctx, int x, int y, int z);
 
+        int cbi_is_blocked_many(Pointer ctx, int n, Pointer xs, Pointer ys, Pointer zs, Pointer out);
+
         int cbi_gen_quart_plane(Pointer ctx, int qx, int qz, int sx, int sz, int yq, int[] out);
 
+        int cbi_gen_quart_plane_into(Pointer ctx, int qx, int qz, int sx, int sz, int yq, Pointer out, int bytesPerId);
+
         int cbi_biome_id_deep_dark();
         int cbi_biome_id_mushroom_fields();
 
@@ -34,13 +39,57 @@ public final class CubiomesBiomeProvider implements BiomeProvider, AutoCloseable
     private final boolean blockDeepDark;
     private final boolean blockMushroomFields;
 
+    // Off-heap buffers for cbi_is_blocked_many, grown on demand. A provider is used by one thread
+    // at a time (see BiomeContextPool), so they need no locking.
+    private Memory xsBuf, ysBuf, zsBuf, outBuf;
+    private byte[] outBytes = new byte[0];
+    private boolean hasBatchExport = true; // cleared if the library predates cbi_is_blocked_many
+
+    // Reusable byte plane for genQuartPlaneBytes (same single-thread rule as above).
+    private Memory planeBuf;
+    private java.nio.ByteBuffer planeView;
+    private boolean hasPlaneIntoExport = true; // cleared if the library predates cbi_gen_quart_plane_into
+
     public int[] genQuartPlane(int qx, int qz, int sx, int sz, int yQuart) {
         int[] out = new int[sx * sz];
+        SlimeEvents.NativeCallEvent ev = new SlimeEvents.NativeCallEvent();
+        ev.begin();
         int rc = lib.cbi_gen_quart_plane(ctx, qx, qz, sx, sz, yQuart, out);
+        commit(ev, "cbi_gen_quart_plane");
         if (rc != 0) throw new RuntimeException("cbi_gen_quart_plane failed rc=" + rc);
         return out;
     }
 
+    /**
+     * Biome ids (one unsigned byte each, row-major sx x sz) of a quart plane, written by the
+     * native side straight into a buffer this provider reuses: no per-call allocation on either
+     * side once the buffer has grown to the largest plane. The view is only valid until the next call.
+     */
+    public java.nio.ByteBuffer genQuartPlaneBytes(int qx, int qz, int sx, int sz, int yQuart) {
+        int n = sx * sz;
+        if (planeBuf == null || planeBuf.size() < n) {
+            planeBuf = new Memory(Math.max(n, 4096));
+            planeView = planeBuf.getByteBuffer(0, planeBuf.size());
+        }
+
+        if (hasPlaneIntoExport) {
+            SlimeEvents.NativeCallEvent ev = new SlimeEvents.NativeCallEvent();
+            ev.begin();
+            try {
+                int rc = lib.cbi_gen_quart_plane_into(ctx, qx, qz, sx, sz, yQuart, planeBuf, 1);
+                commit(ev, "cbi_gen_quart_plane_into");
+                if (rc != 0) throw new RuntimeException("cbi_gen_quart_plane_into failed rc=" + rc);
+                return planeView;
+            } catch (UnsatisfiedLinkError e) {
+                // Older libcubiomeswrap: copy through the int[] export instead.
+                hasPlaneIntoExport = false;
+            }
+        }
+        int[] ids = genQuartPlane(qx, qz, sx, sz, yQuart);
+        for (int i = 0; i < n; i++) planeView.put(i, (byte) Math.min(ids[i] & 0x7FFFFFFF, 255));
+        return planeView;
+    }
+
     // NEW constructor with rule selection
     public CubiomesBiomeProvider(long seed, int mc, String libPath, boolean blockDeepDark, boolean blockMushroomFields) {
         Objects.requireNonNull(libPath, "libPath");
@@ -84,7 +133,57 @@ public final class CubiomesBiomeProvider implements BiomeProvider, AutoCloseable
 
     @Override
     public boolean isBlocked(int x, int y, int z) {
-        return lib.cbi_is_blocked(ctx, x, y, z) == 1;
+        SlimeEvents.NativeCallEvent ev = new SlimeEvents.NativeCallEvent();
+        ev.begin();
+        boolean blocked = lib.cbi_is_blocked(ctx, x, y, z) == 1;
+        commit(ev, "cbi_is_blocked");
+        return blocked;
+    }
+
+    @Override
+    public void isBlockedMany(int n, int[] xs, int[] ys, int[] zs, boolean[] out) {
+        if (!hasBatchExport || n == 0) {
+            BiomeProvider.super.isBlockedMany(n, xs, ys, zs, out);
+            return;
+        }
+        if (xsBuf == null || xsBuf.size() < 4L * n) {
+            long bytes = 4L * Math.max(n, 1024);
+            xsBuf = new Memory(bytes);
+            ysBuf = new Memory(bytes);
+            zsBuf = new Memory(bytes);
+            outBuf = new Memory(bytes / 4);
+            outBytes = new byte[(int) (bytes / 4)];
+        }
+        xsBuf.write(0, xs, 0, n);
+        ysBuf.write(0, ys, 0, n);
+        zsBuf.write(0, zs, 0, n);
+
+        SlimeEvents.NativeCallEvent ev = new SlimeEvents.NativeCallEvent();
+        ev.begin();
+        int rc;
+        try {
+            rc = lib.cbi_is_blocked_many(ctx, n, xsBuf, ysBuf, zsBuf, outBuf);
+        } catch (UnsatisfiedLinkError e) {
+            // Older libcubiomeswrap without the batch export: one call per point from now on.
+            hasBatchExport = false;
+            BiomeProvider.super.isBlockedMany(n, xs, ys, zs, out);
+            return;
+        }
+        commit(ev, "cbi_is_blocked_many");
+        if (rc != 0) throw new RuntimeException("cbi_is_blocked_many failed rc=" + rc);
+
+        outBuf.read(0, outBytes, 0, n);
+        for (int i = 0; i < n; i++) out[i] = outBytes[i] != 0;
+    }
+
+    /** False once the loaded library turned out to lack cbi_is_blocked_many. */
+    public boolean hasBatchExport() { return hasBatchExport; }
+
+    private static void commit(SlimeEvents.NativeCallEvent ev, String function) {
+        if (ev.shouldCommit()) {
+            ev.function = function;
+            ev.commit();
+        }
     }
 
     @Override
@@ -6,12 +6,43 @@ package slimefinder;
  */
 public final class KernelWeights {
     public static final int CR = 8;
+    /** Radius of the search circle; precompute(RADIUS_BLOCKS) fills this kernel exactly. */
+    public static final int RADIUS_BLOCKS = 16 * CR;
     public static final int SIZE = 2 * CR + 1;
 
     private final double[] w; // row-major [dz][dx]
 
+    // Per kernel row dz: the intersecting offsets are exactly dx in [spanLo, spanHi] (a disc is convex).
+    private final int[] spanLo;
+    private final int[] spanHi;
+
     private KernelWeights(double[] w) {
         this.w = w;
+        this.spanLo = new int[SIZE];
+        this.spanHi = new int[SIZE];
+
+        for (int dz = -CR; dz <= CR; dz++) {
+            int lo = CR + 1;
+            int hi = -CR - 1;
+            for (int dx = -CR; dx <= CR; dx++) {
+                if (!intersects(dx, dz)) continue;
+                if (lo > CR) lo = dx;
+                else if (dx != hi + 1) throw new IllegalStateException("kernel row dz=" + dz + " is not a contiguous span");
+                hi = dx;
+            }
+            spanLo[dz + CR] = lo;
+            spanHi[dz + CR] = hi;
+        }
+    }
+
+    /** Smallest dx with intersects(dx,dz), or CR+1 if row dz is empty. */
+    public int spanLo(int dz) {
+        return spanLo[dz + CR];
+    }
+
+    /** Largest dx with intersects(dx,dz), or -CR-1 if row dz is empty. */
+    public int spanHi(int dz) {
+        return spanHi[dz + CR];
     }
 
     public double get(int dx, int dz) {
@@ -0,0 +1,153 @@
+package slimefinder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Allocation-free top-K of (score, cx, cz) packed into one long per entry, kept in a long[] min-heap.
+ *
+ * Key layout (always positive):
+ *   bits 48..62  integer score (0..32767)
+ *   bits 24..47  0xFFFFFF - (cx + 2^23)
+ *   bits  0..23  0xFFFFFF - (cz + 2^23)
+ * so a larger key is a better candidate, and equal scores are ordered by smaller cx, then smaller cz.
+ * Every center has a distinct key, which makes the kept set independent of offer order (and of
+ * thread scheduling); cx/cz must lie in [-2^23, 2^23).
+ */
+public final class PackedTopK {
+
+    public static final int COORD_LIMIT = 1 << 23;
+    private static final long COORD_MASK = 0xFFFFFFL;
+
+    private final int k;
+    private final long[] heap; // min-heap on key
+    private int size;
+
+    public PackedTopK(int k) {
+        this.k = Math.max(0, k);
+        this.heap = new long[this.k];
+    }
+
+    public static long key(int score, int cx, int cz) {
+        return ((long) score << 48)
+                | ((COORD_MASK - (cx + COORD_LIMIT)) << 24)
+                | (COORD_MASK - (cz + COORD_LIMIT));
+    }
+
+    public static int score(long key) { return (int) (key >>> 48); }
+    public static int cx(long key) { return (int) (COORD_MASK - ((key >>> 24) & COORD_MASK)) - COORD_LIMIT; }
+    public static int cz(long key) { return (int) (COORD_MASK - (key & COORD_MASK)) - COORD_LIMIT; }
+
+    public int capacity() { return k; }
+    public int size() { return size; }
+    public boolean isFull() { return size == k; }
+
+    /** Smallest kept key once full; Long.MIN_VALUE before that (anything can still enter). */
+    public long floorKey() {
+        return (k > 0 && size == k) ? heap[0] : Long.MIN_VALUE;
+    }
+
+    /** Returns true if the key was kept. */
+    public boolean offer(long key) {
+        if (size < k) {
+            int i = size++;
+            // sift up
+            while (i > 0) {
+                int p = (i - 1) >>> 1;
+                if (heap[p] <= key) break;
+                heap[i] = heap[p];
+                i = p;
+            }
+            heap[i] = key;
+            return true;
+        }
+        if (k == 0 || key <= heap[0]) return false;
+
+        // replace root, sift down
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int c = 2 * i + 1;
+            int r = c + 1;
+            if (r < size && heap[r] < heap[c]) c = r;
+            if (key <= heap[c]) break;
+            heap[i] = heap[c];
+            i = c;
+        }
+        heap[i] = key;
+        return true;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /** Offer every entry of {@code other} into this heap. */
+    public PackedTopK mergeFrom(PackedTopK other) {
+        for (int i = 0; i < other.size; i++) offer(other.heap[i]);
+        return this;
+    }
+
+    /** Kept keys, best first. */
+    public long[] toSortedDesc() {
+        long[] out = Arrays.copyOf(heap, size);
+        Arrays.sort(out);
+        for (int i = 0, j = out.length - 1; i < j; i++, j--) {
+            long t = out[i]; out[i] = out[j]; out[j] = t;
+        }
+        return out;
+    }
+
+    /** Kept entries as block-coordinate items (x = 16*cx, z = 16*cz), best first. */
+    public List<TopK.Item> toItemsDesc() {
+        long[] keys = toSortedDesc();
+        List<TopK.Item> out = new ArrayList<>(keys.length);
+        for (long key : keys) out.add(new TopK.Item(16 * cx(key), 16 * cz(key), score(key)));
+        return out;
+    }
+
+    /**
+     * Merge many partial heaps (e.g. one per worker thread) into one of capacity k with a
+     * pairwise tree reduction on the common ForkJoin pool. The inputs may be modified.
+     */
+    public static PackedTopK reduce(List<PackedTopK> parts, int k) {
+        if (parts.isEmpty()) return new PackedTopK(k);
+        SlimeEvents.TopKMergeEvent ev = new SlimeEvents.TopKMergeEvent();
+        ev.begin();
+        PackedTopK r = ForkJoinPool.commonPool().invoke(new Reduce(parts, 0, parts.size()));
+        if (r.k != k) r = new PackedTopK(k).mergeFrom(r);
+        if (ev.shouldCommit()) {
+            ev.heaps = parts.size();
+            ev.k = k;
+            ev.commit();
+        }
+        return r;
+    }
+
+    private static final class Reduce extends RecursiveTask<PackedTopK> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<PackedTopK> parts;
+        private final int lo;
+        private final int hi;
+
+        Reduce(List<PackedTopK> parts, int lo, int hi) {
+            this.parts = parts;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected PackedTopK compute() {
+            if (hi - lo == 1) return parts.get(lo);
+            int mid = (lo + hi) >>> 1;
+            Reduce left = new Reduce(parts, lo, mid);
+            left.fork();
+            PackedTopK right = new Reduce(parts, mid, hi).compute();
+            return left.join().mergeFrom(right);
+        }
+    }
+}
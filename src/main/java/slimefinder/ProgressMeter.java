@@ -0,0 +1,81 @@
+package slimefinder;
+
+import java.util.Locale;
+
+/**
+ * Prints one progress line per interval while the fast search runs: tiles done, slime chunks/s,
+ * centers/s and ETA. Workers only bump SearchContext counters; a daemon thread does the printing,
+ * so the cost per tile is a few LongAdder increments instead of a console write.
+ */
+final class ProgressMeter implements AutoCloseable {
+
+    private final SearchContext ctx;
+    private final long totalTiles;
+    private final long totalCenters;
+    private final long intervalMillis;
+    private final long startNanos = System.nanoTime();
+    private final Thread thread;
+
+    ProgressMeter(SearchContext ctx, long totalTiles, long totalCenters, double intervalSeconds) {
+        this.ctx = ctx;
+        this.totalTiles = totalTiles;
+        this.totalCenters = totalCenters;
+        this.intervalMillis = (long) (intervalSeconds * 1000);
+        if (intervalMillis > 0) {
+            thread = new Thread(this::loop, "slimefinder-progress");
+            thread.setDaemon(true);
+            thread.start();
+        } else {
+            thread = null;
+        }
+    }
+
+    private void loop() {
+        try {
+            while (true) {
+                Thread.sleep(intervalMillis);
+                System.out.println(line());
+            }
+        } catch (InterruptedException e) {
+            // closed
+        }
+    }
+
+    private String line() {
+        long tiles = ctx.tilesDone.sum();
+        long centers = ctx.centersDone.sum();
+        double secs = Math.max(1e-9, (System.nanoTime() - startNanos) / 1e9);
+        double centersPerSec = centers / secs;
+        String eta = (centers > 0) ? formatSeconds((totalCenters - centers) / centersPerSec) : "?";
+        return String.format(Locale.ROOT, "Progress: %d/%d tiles (%.1f%%), %s chunks/s, %s centers/s, ETA %s",
+                tiles, totalTiles, 100.0 * centers / Math.max(1, totalCenters),
+                formatRate(ctx.chunksDone.sum() / secs), formatRate(centersPerSec), eta);
+    }
+
+    /** Stops the meter and prints the final throughput line. */
+    @Override
+    public void close() {
+        if (thread != null) {
+            thread.interrupt();
+            try { thread.join(); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+        }
+        double secs = (System.nanoTime() - startNanos) / 1e9;
+        System.out.println(String.format(Locale.ROOT, "Search: %d tiles in %.2f s (%s chunks/s, %s centers/s)",
+                ctx.tilesDone.sum(), secs,
+                formatRate(ctx.chunksDone.sum() / Math.max(1e-9, secs)),
+                formatRate(ctx.centersDone.sum() / Math.max(1e-9, secs))));
+    }
+
+    private static String formatRate(double v) {
+        if (v >= 1e9) return String.format(Locale.ROOT, "%.2fG", v / 1e9);
+        if (v >= 1e6) return String.format(Locale.ROOT, "%.2fM", v / 1e6);
+        if (v >= 1e3) return String.format(Locale.ROOT, "%.1fk", v / 1e3);
+        return String.format(Locale.ROOT, "%.0f", v);
+    }
+
+    private static String formatSeconds(double s) {
+        long t = Math.round(s);
+        if (t >= 3600) return String.format(Locale.ROOT, "%d:%02d:%02d", t / 3600, (t / 60) % 60, t % 60);
+        return String.format(Locale.ROOT, "%d:%02d", t / 60, t % 60);
+    }
+}
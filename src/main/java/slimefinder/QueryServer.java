@@ -0,0 +1,454 @@
+package slimefinder;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import slimefinder.SlimeFinder.Tile;
+
+/**
+ * --serve / --serve-port: answers small queries about one world from a long-running process, one
+ * JSON object per line in each direction, so tooling pays JVM start, JIT warm-up, library load
+ * and biome generation once instead of per question.
+ *
+ * The kernel, the search pool, the cubiomes contexts and the biome grid (plus --biome-store) stay
+ * warm across requests. Requests are handled by a fixed set of handler threads with a bounded
+ * queue; when it is full, connections stop reading until a slot frees up, so a client sending
+ * faster than the server answers is slowed down by its own pipe or socket instead of piling up
+ * work. Over TCP at most MAX_CONNECTIONS connections are served at a time (one reader thread
+ * each); further clients wait in the listen backlog until one closes. Box searches run their
+ * tiles on the shared work-stealing pool.
+ *
+ * Requests (coordinates are blocks; centers are chunk origins, as in results.csv; "id" is echoed):
+ *   {"op":"score","x":..,"z":..}                       slime chunks in the circle (and biome score)
+ *   {"op":"top","x0":..,"z0":..,"x1":..,"z1":..,"k":20[,"threshold":t]}   best centers in a box
+ *   {"op":"breakdown","x":..,"z":..}                   the chunks counted, by coverage and biome
+ *   {"op":"stats"} and {"op":"shutdown"}
+ * A shutdown is answered by the thread reading its connection, which then stops reading: on stdin
+ * the server exits without waiting for the end of input, on TCP it stops accepting connections.
+ * With --biomes every score is biome-aware (from the grid).
+ */
+final class QueryServer {
+
+    private static final int CR = KernelWeights.CR;
+    private static final int QUEUE_PER_HANDLER = 4;
+    static final int MAX_CONNECTIONS = 64;
+    static final int BOX_TILE = 256;
+    private static final long MAX_BOX_CENTERS = 1L << 26;
+    private static final int MAX_K = 10_000;
+
+    private final SlimeFinder.Args args;
+    private final KernelWeights kernel;
+    private final ForkJoinPool exec;
+    private final ThreadPoolExecutor handlers;
+    private final Semaphore slots;              // running + queued requests
+    private final Semaphore connections = new Semaphore(MAX_CONNECTIONS);
+    private final BiomeOkFracGrid grid;         // null without --biomes
+    private final BiomeValidator validator;     // null without --biomes
+
+    private final AtomicLong served = new AtomicLong();
+    private final AtomicLong stalls = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile boolean stopping;
+
+    QueryServer(SlimeFinder.Args args, KernelWeights kernel, ForkJoinPool exec, BiomeOkFracGrid grid) {
+        this.args = args;
+        this.kernel = kernel;
+        this.exec = exec;
+        this.grid = grid;
+        this.validator = (grid != null) ? new BiomeValidator(args.seed, kernel, args.farmY, args.samples, grid) : null;
+        int n = Math.max(1, args.threads);
+        this.handlers = new ThreadPoolExecutor(n, n, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), r -> { // bounded by slots
+                    Thread t = new Thread(r, "slimefinder-query");
+                    t.setDaemon(true);
+                    return t;
+                });
+        this.slots = new Semaphore(n + QUEUE_PER_HANDLER * n);
+    }
+
+    /** Serves requests from stdin until it ends or a shutdown request; responses go to {@code out} (the real stdout). */
+    void serveStdin(PrintStream out) throws IOException {
+        Writer w = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        System.err.println("Serving seed " + args.seed + " on stdin (one JSON request per line)");
+        serve(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)), w);
+        drain();
+    }
+
+    /** Serves localhost TCP connections on {@code port} (0 = any free port) until a shutdown request. */
+    void serveTcp(int port) throws IOException {
+        try (ServerSocket ss = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+            System.out.println("Serving seed " + args.seed + " on " + ss.getInetAddress().getHostAddress() + ":" + ss.getLocalPort());
+            ss.setSoTimeout(500); // wake up now and then to notice a shutdown request
+            while (!stopping) {
+                // No accept without a free connection slot: extra clients wait in the backlog.
+                try {
+                    if (!connections.tryAcquire(500, TimeUnit.MILLISECONDS)) continue;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                Socket s;
+                try {
+                    s = ss.accept();
+                } catch (java.net.SocketTimeoutException e) {
+                    connections.release();
+                    continue;
+                }
+                Thread t = new Thread(() -> {
+                    try (Socket c = s) {
+                        OutputStream os = c.getOutputStream();
+                        serve(new BufferedReader(new InputStreamReader(c.getInputStream(), StandardCharsets.UTF_8)),
+                                new OutputStreamWriter(os, StandardCharsets.UTF_8));
+                    } catch (IOException ignored) {
+                        // client went away
+                    } finally {
+                        connections.release();
+                    }
+                }, "slimefinder-conn");
+                t.setDaemon(true);
+                t.start();
+            }
+        }
+        drain();
+    }
+
+    private void drain() {
+        handlers.shutdown();
+        try {
+            handlers.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        System.out.println("Served " + served.get() + " requests (" + failed.get() + " failed; readers stalled " + stalls.get() + " times)");
+    }
+
+    /** Reads one connection's requests; answers arrive in completion order, matched by "id". */
+    private void serve(BufferedReader in, Writer out) throws IOException {
+        String line;
+        while (!stopping && (line = in.readLine()) != null) {
+            if (line.isBlank()) continue;
+            final String req = line;
+            if (isShutdown(req)) {
+                reply(out, handle(req));
+                break; // don't block in readLine() waiting for input that may never come
+            }
+            if (!slots.tryAcquire()) {
+                stalls.incrementAndGet();
+                slots.acquireUninterruptibly();
+            }
+            try {
+                handlers.execute(() -> {
+                    try {
+                        reply(out, handle(req));
+                    } finally {
+                        slots.release();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                slots.release();
+                break; // shutting down
+            }
+        }
+    }
+
+    private static boolean isShutdown(String line) {
+        try {
+            return "shutdown".equals(Json.parse(line).get("op"));
+        } catch (IllegalArgumentException e) {
+            return false; // handle() answers with the parse error
+        }
+    }
+
+    private static void reply(Writer out, String json) {
+        synchronized (out) {
+            try {
+                out.write(json);
+                out.write('\n');
+                out.flush();
+            } catch (IOException ignored) {
+                // client went away; nothing to answer
+            }
+        }
+    }
+
+    String handle(String line) {
+        Object id = null;
+        try {
+            Map<String, Object> req = Json.parse(line);
+            id = req.get("id");
+            String op = String.valueOf(req.get("op"));
+            String resp = switch (op) {
+                case "score" -> score(id, req);
+                case "top" -> top(id, req);
+                case "breakdown" -> breakdown(id, req);
+                case "stats" -> stats(id);
+                case "shutdown" -> {
+                    stopping = true;
+                    yield ok(id).end();
+                }
+                default -> throw new IllegalArgumentException("unknown op '" + op + "'");
+            };
+            served.incrementAndGet();
+            return resp;
+        } catch (IllegalArgumentException e) {
+            failed.incrementAndGet();
+            return error(id, e.getMessage());
+        } catch (RuntimeException e) {
+            failed.incrementAndGet();
+            return error(id, "internal error: " + e);
+        }
+    }
+
+    private String score(Object id, Map<String, Object> req) {
+        int cx = Math.floorDiv(Json.intOf(req, "x"), 16);
+        int cz = Math.floorDiv(Json.intOf(req, "z"), 16);
+        int slime = 0;
+        for (int dz = -CR; dz <= CR; dz++) {
+            for (int dx = -CR; dx <= CR; dx++) {
+                if (kernel.intersects(dx, dz) && SlimeChunk.isSlimeChunk(args.seed, cx + dx, cz + dz)) slime++;
+            }
+        }
+        Json.Obj o = ok(id).num("x", 16 * cx).num("z", 16 * cz).num("slime", slime);
+        if (validator != null) o.num("score", validator.gridScore(16 * cx, 16 * cz));
+        return o.end();
+    }
+
+    private String top(Object id, Map<String, Object> req) {
+        int cx0 = Math.floorDiv(Json.intOf(req, "x0") + 15, 16);
+        int cz0 = Math.floorDiv(Json.intOf(req, "z0") + 15, 16);
+        int cx1 = Math.floorDiv(Json.intOf(req, "x1"), 16);
+        int cz1 = Math.floorDiv(Json.intOf(req, "z1"), 16);
+        int k = req.containsKey("k") ? Json.intOf(req, "k") : 20;
+        double threshold = req.containsKey("threshold") ? Json.numOf(req, "threshold") : args.threshold;
+        if (cx1 < cx0 || cz1 < cz0) throw new IllegalArgumentException("empty box (no chunk origin inside)");
+        long centers = (long) (cx1 - cx0 + 1) * (cz1 - cz0 + 1);
+        if (centers > MAX_BOX_CENTERS) throw new IllegalArgumentException("box has " + centers + " centers; at most " + MAX_BOX_CENTERS);
+        if (k < 1 || k > MAX_K) throw new IllegalArgumentException("k must be in [1, " + MAX_K + "]");
+        if (Math.max(Math.max(Math.abs(cx0), Math.abs(cx1)), Math.max(Math.abs(cz0), Math.abs(cz1))) >= PackedTopK.COORD_LIMIT - CR) {
+            throw new IllegalArgumentException("box is outside the searchable world");
+        }
+
+        // A search of its own: threshold, k and floor belong to this request only.
+        SlimeFinder.Args q = new SlimeFinder.Args();
+        q.threshold = threshold;
+        q.topk = k;
+        q.engine = args.engine;
+        q.prune = args.prune;
+        SearchContext ctx = new SearchContext(q, args.seed, kernel, null, grid, null);
+
+        List<Tile> tiles = new ArrayList<>();
+        for (int z = cz0; z <= cz1; z += BOX_TILE) {
+            for (int x = cx0; x <= cx1; x += BOX_TILE) {
+                tiles.add(new Tile(z, Math.min(cz1, z + BOX_TILE - 1), x, Math.min(cx1, x + BOX_TILE - 1)));
+            }
+        }
+        PackedTopK best = new PackedTopK(k);
+        TileScheduler.run(exec, tiles, t -> {
+            PackedTopK local = new PackedTopK(k);
+            SlimeFinder.processTile(t, ctx, local);
+            synchronized (best) {
+                best.mergeFrom(local);
+            }
+        });
+
+        StringBuilder rows = new StringBuilder("[");
+        for (TopK.Item it : best.toItemsDesc()) {
+            if (rows.length() > 1) rows.append(',');
+            rows.append("{\"x\":").append(it.x).append(",\"z\":").append(it.z).append(",\"score\":").append((int) it.score).append('}');
+        }
+        return ok(id).num("centers", centers).raw("rows", rows.append(']').toString()).end();
+    }
+
+    private String breakdown(Object id, Map<String, Object> req) {
+        int x = 16 * Math.floorDiv(Json.intOf(req, "x"), 16);
+        int z = 16 * Math.floorDiv(Json.intOf(req, "z"), 16);
+        ChunkClassifier.Breakdown bd = (grid != null)
+                ? ChunkClassifier.classifyForCenter(args.seed, x, z, CR, grid)
+                : ChunkClassifier.classifyForCenter(args.seed, x, z, CR, args.farmY, args.samples, new NoBiomeProvider());
+        return ok(id).num("x", x).num("z", z)
+                .raw("fullCoverFullBiome", chunks(bd.fullCoverFullBiome))
+                .raw("fullCoverPartBiome", chunks(bd.fullCoverPartBiome))
+                .raw("partCoverFullBiome", chunks(bd.partCoverFullBiome))
+                .raw("partCoverPartBiome", chunks(bd.partCoverPartBiome))
+                .end();
+    }
+
+    private String stats(Object id) {
+        Json.Obj o = ok(id).num("served", served.get()).num("failed", failed.get()).num("stalls", stalls.get())
+                .num("active", handlers.getActiveCount()).num("queued", handlers.getQueue().size())
+                .num("connections", MAX_CONNECTIONS - connections.availablePermits());
+        if (grid != null) o.num("grid_tiles_loaded", grid.loadedTiles());
+        return o.end();
+    }
+
+    private static String chunks(List<ChunkClassifier.ChunkCoord> cs) {
+        StringBuilder sb = new StringBuilder("[");
+        for (ChunkClassifier.ChunkCoord c : cs) {
+            if (sb.length() > 1) sb.append(',');
+            sb.append('[').append(c.cx).append(',').append(c.cz).append(']');
+        }
+        return sb.append(']').toString();
+    }
+
+    private static Json.Obj ok(Object id) {
+        Json.Obj o = new Json.Obj();
+        if (id != null) o.value("id", id);
+        return o.value("ok", Boolean.TRUE);
+    }
+
+    private static String error(Object id, String message) {
+        Json.Obj o = new Json.Obj();
+        if (id != null) o.value("id", id);
+        return o.value("ok", Boolean.FALSE).value("error", message).end();
+    }
+
+    /** Just enough JSON for flat request objects (numbers, strings, booleans, null) and responses. */
+    static final class Json {
+        private Json() {}
+
+        static Map<String, Object> parse(String s) {
+            Map<String, Object> m = new LinkedHashMap<>();
+            int[] p = {skip(s, 0)};
+            expect(s, p, '{');
+            if (peek(s, p) == '}') {
+                p[0]++;
+                return m;
+            }
+            while (true) {
+                String key = string(s, p);
+                expect(s, p, ':');
+                m.put(key, value(s, p));
+                char c = peek(s, p);
+                p[0]++;
+                if (c == '}') break;
+                if (c != ',') throw new IllegalArgumentException("bad request: expected , or } at " + (p[0] - 1));
+            }
+            if (skip(s, p[0]) != s.length()) throw new IllegalArgumentException("bad request: trailing characters");
+            return m;
+        }
+
+        static int intOf(Map<String, Object> m, String key) {
+            double v = numOf(m, key);
+            if (v != Math.rint(v) || Math.abs(v) > Integer.MAX_VALUE) throw new IllegalArgumentException("\"" + key + "\" must be an integer");
+            return (int) v;
+        }
+
+        static double numOf(Map<String, Object> m, String key) {
+            Object v = m.get(key);
+            if (!(v instanceof Double d)) throw new IllegalArgumentException("missing number \"" + key + "\"");
+            return d;
+        }
+
+        private static Object value(String s, int[] p) {
+            char c = peek(s, p);
+            if (c == '"') return string(s, p);
+            for (String lit : new String[] {"true", "false", "null"}) {
+                if (s.startsWith(lit, p[0])) {
+                    p[0] += lit.length();
+                    return lit.equals("null") ? null : Boolean.valueOf(lit);
+                }
+            }
+            int start = p[0];
+            while (p[0] < s.length() && "+-0123456789.eE".indexOf(s.charAt(p[0])) >= 0) p[0]++;
+            try {
+                return Double.parseDouble(s.substring(start, p[0]));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("bad request: unsupported value at " + start);
+            }
+        }
+
+        private static String string(String s, int[] p) {
+            expect(s, p, '"');
+            StringBuilder sb = new StringBuilder();
+            while (p[0] < s.length()) {
+                char c = s.charAt(p[0]++);
+                if (c == '"') return sb.toString();
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                if (p[0] >= s.length()) break;
+                char e = s.charAt(p[0]++);
+                switch (e) {
+                    case 'n' -> sb.append('\n');
+                    case 't' -> sb.append('\t');
+                    case 'r' -> sb.append('\r');
+                    case 'b' -> sb.append('\b');
+                    case 'f' -> sb.append('\f');
+                    case 'u' -> {
+                        if (p[0] + 4 > s.length()) throw new IllegalArgumentException("bad request: bad \\u escape");
+                        sb.append((char) Integer.parseInt(s.substring(p[0], p[0] + 4), 16));
+                        p[0] += 4;
+                    }
+                    default -> sb.append(e);
+                }
+            }
+            throw new IllegalArgumentException("bad request: unterminated string");
+        }
+
+        private static void expect(String s, int[] p, char c) {
+            if (peek(s, p) != c) throw new IllegalArgumentException("bad request: expected " + c + " at " + p[0]);
+            p[0]++;
+        }
+
+        private static char peek(String s, int[] p) {
+            p[0] = skip(s, p[0]);
+            if (p[0] >= s.length()) throw new IllegalArgumentException("bad request: unexpected end");
+            return s.charAt(p[0]);
+        }
+
+        private static int skip(String s, int i) {
+            while (i < s.length() && Character.isWhitespace(s.charAt(i))) i++;
+            return i;
+        }
+
+        /** One-line response object. */
+        static final class Obj {
+            private final StringBuilder sb = new StringBuilder("{");
+
+            Obj num(String key, long v) {
+                return raw(key, Long.toString(v));
+            }
+
+            Obj value(String key, Object v) {
+                if (v == null) return raw(key, "null");
+                if (v instanceof Boolean) return raw(key, v.toString());
+                if (v instanceof Double d) {
+                    return raw(key, d == Math.rint(d) && Math.abs(d) < 1e15 ? Long.toString(d.longValue()) : String.format(Locale.ROOT, "%s", d));
+                }
+                return raw(key, RunMetrics.quote(String.valueOf(v)));
+            }
+
+            Obj raw(String key, String json) {
+                if (sb.length() > 1) sb.append(',');
+                sb.append(RunMetrics.quote(key)).append(':').append(json);
+                return this;
+            }
+
+            String end() {
+                return sb.append('}').toString();
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package slimefinder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * --extend-from: grow a finished search (its --bin-out file) to a new region by scanning only the
+ * centers the old run did not score, then merging both top-Ks.
+ *
+ * A center's score only depends on the slime chunks around it, and every tile generates its CR
+ * halo, so centers just outside the old border read chunks inside it like any other tile would.
+ * The old scores stay exact, and only the difference of the two regions has to be scanned:
+ *   new \ old = (new \ [-m0,m0]^2) + (new inside the old inner square)
+ * i.e. at most two ring searches (see Piece).
+ *
+ * The merge is exact when the old file holds every old center that could reach the new top-K:
+ * the same seed and scoring, the old threshold no higher than the new one, and either a topk at
+ * least the new one or fewer rows than its topk (then it holds every center above its threshold).
+ * A new region that drops old centers (smaller m, larger inner) needs the latter: rows ranked
+ * behind the dropped ones were never kept.
+ */
+final class RegionExtension {
+
+    /** Centers in [-outer,outer]^2 outside [-inner,inner]^2 (inner 0 = none), as in TileScheduler.buildTiles. */
+    record Piece(int outer, int inner) {
+        long centers() {
+            long side = 2L * outer + 1;
+            long hole = (inner > 0) ? 2L * inner + 1 : 0;
+            return side * side - hole * hole;
+        }
+    }
+
+    final ResultFile.Contents old;
+    final List<Piece> pieces;
+    final List<TopK.Item> kept; // old rows inside the new region
+
+    private RegionExtension(ResultFile.Contents old, List<Piece> pieces, List<TopK.Item> kept) {
+        this.old = old;
+        this.pieces = pieces;
+        this.kept = kept;
+    }
+
+    /** The pieces to scan for the whole region of {@code args}, when nothing is extended. */
+    static List<Piece> fullRegion(SlimeFinder.Args args) {
+        return List.of(new Piece(args.mChunks, args.innerChunks));
+    }
+
+    /**
+     * Plans the extension of the search in {@code path} to the region of {@code args}; throws
+     * IllegalArgumentException if the old results cannot be merged exactly.
+     */
+    static RegionExtension plan(SlimeFinder.Args args, Path path) throws IOException {
+        ResultFile.Contents old = ResultFile.read(path);
+        int thrInt = (int) Math.ceil(args.threshold);
+
+        if (old.shard() != null) {
+            throw new IllegalArgumentException(path + " is shard " + old.shard().index() + "/" + old.shard().count()
+                    + " of a search; merge the shards first");
+        }
+        if (old.seed() != args.seed) {
+            throw new IllegalArgumentException(path + " is for seed " + old.seed());
+        }
+        boolean oldAware = (old.flags() & ResultFile.FLAG_DUMP_VALIDATED) != 0;
+        if ((old.flags() & ResultFile.FLAG_VALIDATED) != 0 && !oldAware) {
+            throw new IllegalArgumentException(path + " holds biome-validated rows, not the fast-search top-K;"
+                    + " extend from a run without --biomes or with --biome-aware");
+        }
+        if (oldAware != args.biomeAware) {
+            throw new IllegalArgumentException(path + (oldAware ? " was" : " was not") + " a --biome-aware search; this run must match");
+        }
+        if (oldAware) {
+            // Biome-penalised scores are only comparable for the same biome generation and farm height.
+            int mcId = SlimeFinder.CubiomesMcVersionMap.toCubiomesMcId(args.mcVersion);
+            if (old.mcId() == 0) {
+                throw new IllegalArgumentException(path + " does not record its --mc-version and --farm-y (older file format); rerun it");
+            }
+            if (old.mcId() != mcId || old.farmY() != args.farmY) {
+                throw new IllegalArgumentException(path + " has biome scores for mc " + old.mcId() + " at y=" + old.farmY()
+                        + "; this run uses mc " + mcId + " at y=" + args.farmY);
+            }
+        }
+        if (old.scoreBase() > thrInt) {
+            throw new IllegalArgumentException(path + " only kept scores >= " + old.scoreBase()
+                    + "; --threshold must be at least that");
+        }
+        // Version 1 files do not record their topk; their row count is a safe lower bound for it.
+        boolean complete = old.topk() > 0 && old.top().size() < old.topk();
+        int limit = (old.topk() > 0) ? old.topk() : old.top().size();
+        if (!complete && args.topk > limit) {
+            throw new IllegalArgumentException(path + " kept only its top " + limit + " rows; use --topk " + limit + " or less");
+        }
+
+        int m = args.mChunks;
+        int inner = args.innerChunks;
+        int m0 = old.mChunks();
+        int i0 = old.innerChunks();
+        // Centers the new region drops may fill the old top-K; what ranked behind them was never kept.
+        if (!complete && (m < m0 || inner > i0)) {
+            throw new IllegalArgumentException(path + " kept only its top " + limit + " rows of m=" + m0 + ", inner=" + i0
+                    + "; it can only be grown (--m-chunks >= " + m0 + ", --inner-chunks <= " + i0 + ")");
+        }
+
+        List<Piece> pieces = new ArrayList<>();
+        int hole = Math.max(inner, m0);
+        if (hole == 0) {
+            // The old region was the single center (0,0): scan everything again rather than cut it out.
+            return new RegionExtension(old, fullRegion(args), List.of());
+        }
+        if (hole < m) pieces.add(new Piece(m, hole));
+        if (i0 > inner) pieces.add(new Piece(Math.min(m, i0), inner));
+
+        List<TopK.Item> kept = new ArrayList<>();
+        for (TopK.Item it : old.top()) {
+            int cx = it.x / 16;
+            int cz = it.z / 16;
+            boolean inNew = Math.abs(cx) <= m && Math.abs(cz) <= m
+                    && !(inner > 0 && Math.abs(cx) <= inner && Math.abs(cz) <= inner);
+            if (inNew && it.score >= thrInt) kept.add(it);
+        }
+        return new RegionExtension(old, pieces, kept);
+    }
+
+    /** Total centers over the pieces. */
+    static long centers(List<Piece> pieces) {
+        long n = 0;
+        for (Piece p : pieces) n += p.centers();
+        return n;
+    }
+}
@@ -0,0 +1,61 @@
+package slimefinder;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+
+/**
+ * The export command: writes the centers of a --bin-out file to CSV in the results.csv format
+ * (block coords). A --dump-all file exports every dumped center, tile by tile in the order the
+ * tiles finished; any other file exports its top-K rows, best first.
+ */
+final class ResultExport {
+
+    private ResultExport() {}
+
+    static void run(String[] argv) throws Exception {
+        if (argv.length != 2 || argv[0].startsWith("--") || argv[1].startsWith("--")) {
+            fail("usage: export <result.bin> <out.csv>");
+            return;
+        }
+        Path in = Path.of(argv[0]);
+        ResultFile.Contents c;
+        try {
+            c = ResultFile.read(in);
+        } catch (IOException | IllegalStateException e) {
+            fail("cannot read " + in + ": " + e.getMessage());
+            return;
+        }
+
+        if ((c.flags() & ResultFile.FLAG_DUMP) == 0) {
+            SlimeFinder.writeCsv(argv[1], c.top());
+            System.out.println("Wrote " + argv[1] + " (" + c.top().size() + " top rows; " + in + " has no --dump-all blocks)");
+            return;
+        }
+        long[] rows = {0};
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(argv[1]))) {
+            bw.write("x,z,score\n");
+            ResultFile.forEachDumped(in, (cx, cz, score) -> {
+                try {
+                    bw.write(16 * cx + "," + 16 * cz + "," + (double) score + "\n");
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                rows[0]++;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (IllegalStateException e) {
+            fail(e.getMessage()); // names the file and the block
+            return;
+        }
+        System.out.println("Wrote " + argv[1] + " (" + rows[0] + " dumped centers)");
+    }
+
+    private static void fail(String message) {
+        System.out.println("Error: " + message);
+        System.exit(1);
+    }
+}
@@ -0,0 +1,312 @@
+package slimefinder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Binary result file (--bin-out): the final top-K as fixed-width records and, optionally, every
+ * center scoring at least the threshold (--dump-all), streamed to disk while tiles finish.
+ *
+ * File layout (little-endian):
+ *   0  long  MAGIC
+ *   8  int   FORMAT_VERSION
+ *   12 int   flags (FLAG_DUMP: dump blocks present, FLAG_VALIDATED: top-K scores exclude blocked
+ *            biomes, FLAG_DUMP_VALIDATED: so do dumped scores, i.e. the search was biome-aware)
+ *   16 long  seed
+ *   24 int   mChunks, innerChunks
+ *   32 int   scoreBase (integer threshold; dumped scores are stored relative to it)
+ *   36 int   topCount
+ *   40 long  dumpCount
+ *   48 long  topOffset
+ *   56 int   topk (--topk of the run: a file with fewer rows holds every center above the threshold)
+ *   60 int   mcId, farmY: cubiomes version and farm height the biome scores used (0, 0 without biomes)
+ *   68 int   CRC32 of bytes [0,68)
+ *   72 dump blocks, one per tile with at least one center, in completion order:
+ *        int cz0, cx0, tileW, count, payloadBytes, CRC32 of payload
+ *        payload: per center in row-major order, varint (index - previous index - 1) and
+ *        varint (score - scoreBase), where index = (cz - cz0) * tileW + (cx - cx0)
+ *   topOffset: topCount records of int x, z (block coords), score; then int CRC32 of the records
+ *   then, with FLAG_PARTIAL (--shard): int shardIndex, shardCount, tileRows, tileCols, CRC32 of those
+ *
+ * The header is written last, so a run that dies half way leaves a file that fails the magic or
+ * CRC check instead of one that looks complete. Nothing is buffered beyond one tile per worker.
+ * Older files are still read: version 2 (64-byte header, CRC32 of [0,60) at 60) with mcId and
+ * farmY 0 (unknown), version 1 (no topk either, CRC32 of [0,56) at 56) also with topk 0.
+ */
+final class ResultFile {
+
+    private static final long MAGIC = 0x31544C53524D4C53L; // "SLMRSLT1" read little-endian
+    private static final int FORMAT_VERSION = 3;
+    private static final int HEADER = 72;
+    private static final int HEADER_V2 = 64; // versions 1 and 2
+    private static final int BLOCK_HEADER = 24;
+    private static final int TOP_RECORD = 12;
+
+    static final int FLAG_DUMP = 1;
+    static final int FLAG_VALIDATED = 2;
+    static final int FLAG_DUMP_VALIDATED = 4;
+    static final int FLAG_PARTIAL = 8;
+    private static final int SHARD_TRAILER = 20;
+
+    private ResultFile() {}
+
+    /**
+     * Everything but the dump blocks; topk, mcId and farmY are 0 if the file does not record them,
+     * shard is null unless partial.
+     */
+    record Contents(long seed, int mChunks, int innerChunks, int scoreBase, int flags, int topk, int mcId, int farmY,
+                    long dumpCount, List<TopK.Item> top, Shard shard) {}
+
+    /** Which tiles a partial file covers: TileScheduler.shardTiles(..., tileRows, tileCols, index, count). */
+    record Shard(int index, int count, int tileRows, int tileCols) {}
+
+    /** Receives dumped centers in file order. */
+    interface DumpVisitor {
+        void center(int cx, int cz, int score);
+    }
+
+    /** Streams dump blocks and writes the header and top-K at the end. */
+    static final class Writer implements AutoCloseable {
+        private final Path path;
+        private final FileChannel ch;
+        private long pos = HEADER;
+        private long dumped;
+        private boolean any;
+        private Shard shard;
+
+        Writer(Path path) throws IOException {
+            this.path = path;
+            this.ch = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            writeFully(ByteBuffer.allocate(HEADER), 0);
+        }
+
+        /** Append one tile's block (no-op for an empty tile); safe to call from any worker. */
+        void append(TileDump d) {
+            if (d.count == 0) return;
+            ByteBuffer bb = d.finish();
+            synchronized (this) {
+                try {
+                    writeFully(bb, pos);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to write " + path, e);
+                }
+                pos += bb.limit();
+                dumped += d.count;
+                any = true;
+            }
+        }
+
+        /** Mark the file as the partial result of one shard (call before finish). */
+        synchronized void shard(Shard s) {
+            this.shard = s;
+        }
+
+        /**
+         * Write the top-K section and the header; the file is complete afterwards. mcId and farmY
+         * describe the biome scores (0, 0 when scoreFlags has none).
+         */
+        synchronized void finish(long seed, int mChunks, int innerChunks, int scoreBase, int scoreFlags, int topk,
+                                 int mcId, int farmY, List<TopK.Item> top) throws IOException {
+            ByteBuffer recs = ByteBuffer.allocate(TOP_RECORD * top.size() + 4).order(ByteOrder.LITTLE_ENDIAN);
+            for (TopK.Item it : top) {
+                recs.putInt(it.x).putInt(it.z).putInt((int) it.score);
+            }
+            CRC32 crc = new CRC32();
+            crc.update(recs.array(), 0, TOP_RECORD * top.size());
+            recs.putInt((int) crc.getValue());
+            recs.flip();
+            long topOffset = pos;
+            writeFully(recs, topOffset);
+            long end = topOffset + recs.limit();
+            if (shard != null) {
+                ByteBuffer tr = ByteBuffer.allocate(SHARD_TRAILER).order(ByteOrder.LITTLE_ENDIAN);
+                tr.putInt(shard.index()).putInt(shard.count()).putInt(shard.tileRows()).putInt(shard.tileCols());
+                crc.reset();
+                crc.update(tr.array(), 0, SHARD_TRAILER - 4);
+                tr.putInt((int) crc.getValue());
+                tr.flip();
+                writeFully(tr, end);
+                end += SHARD_TRAILER;
+            }
+            ch.truncate(end);
+
+            ByteBuffer h = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            h.putLong(0, MAGIC);
+            h.putInt(8, FORMAT_VERSION);
+            h.putInt(12, (any ? FLAG_DUMP : 0) | (shard != null ? FLAG_PARTIAL : 0)
+                    | (scoreFlags & (FLAG_VALIDATED | FLAG_DUMP_VALIDATED)));
+            h.putLong(16, seed);
+            h.putInt(24, mChunks);
+            h.putInt(28, innerChunks);
+            h.putInt(32, scoreBase);
+            h.putInt(36, top.size());
+            h.putLong(40, dumped);
+            h.putLong(48, topOffset);
+            h.putInt(56, topk);
+            h.putInt(60, mcId);
+            h.putInt(64, farmY);
+            crc.reset();
+            crc.update(h.array(), 0, 68);
+            h.putInt(68, (int) crc.getValue());
+            writeFully(h, 0);
+            ch.force(true);
+        }
+
+        synchronized long dumped() { return dumped; }
+
+        private void writeFully(ByteBuffer bb, long at) throws IOException {
+            while (bb.hasRemaining()) at += ch.write(bb, at);
+        }
+
+        @Override
+        public void close() throws IOException {
+            ch.close();
+        }
+    }
+
+    /** Per-worker encoder for one tile's dump block; reused from tile to tile. */
+    static final class TileDump {
+        private byte[] buf = new byte[256];
+        private int len;
+        private int count;
+        private int last;
+        private int scoreBase;
+        private int cz0;
+        private int cx0;
+        private int tileW;
+
+        void begin(int cz0, int cx0, int tileW, int scoreBase) {
+            this.cz0 = cz0;
+            this.cx0 = cx0;
+            this.tileW = tileW;
+            this.scoreBase = scoreBase;
+            this.len = BLOCK_HEADER;
+            this.count = 0;
+            this.last = -1;
+        }
+
+        /** Center (col, row) of the tile; calls must come in row-major order. */
+        void add(int col, int row, int score) {
+            int index = row * tileW + col;
+            if (buf.length - len < 10) buf = java.util.Arrays.copyOf(buf, buf.length * 2);
+            putVarint(index - last - 1);
+            putVarint(score - scoreBase);
+            last = index;
+            count++;
+        }
+
+        private void putVarint(int v) {
+            while ((v & ~0x7F) != 0) {
+                buf[len++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            buf[len++] = (byte) v;
+        }
+
+        private ByteBuffer finish() {
+            ByteBuffer bb = ByteBuffer.wrap(buf, 0, len).order(ByteOrder.LITTLE_ENDIAN);
+            CRC32 crc = new CRC32();
+            crc.update(buf, BLOCK_HEADER, len - BLOCK_HEADER);
+            bb.putInt(0, cz0).putInt(4, cx0).putInt(8, tileW).putInt(12, count)
+                    .putInt(16, len - BLOCK_HEADER).putInt(20, (int) crc.getValue());
+            return bb;
+        }
+    }
+
+    /** Header and top-K of a complete file; throws IllegalStateException if it is not one. */
+    static Contents read(Path path) throws IOException {
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer h = readAt(ch, 0, HEADER_V2);
+            if (h.getLong(0) != MAGIC) throw new IllegalStateException(path + " is not a complete result file");
+            int version = h.getInt(8);
+            if (version < 1 || version > FORMAT_VERSION) throw new IllegalStateException(path + " has format version " + version);
+            if (version == FORMAT_VERSION) h = readAt(ch, 0, HEADER);
+            int crcAt = (version == 1) ? 56 : (version == 2) ? 60 : 68;
+            CRC32 crc = new CRC32();
+            crc.update(h.array(), 0, crcAt);
+            if ((int) crc.getValue() != h.getInt(crcAt)) throw new IllegalStateException(path + " has a corrupt header");
+
+            int topCount = h.getInt(36);
+            ByteBuffer recs = readAt(ch, h.getLong(48), TOP_RECORD * topCount + 4);
+            crc.reset();
+            crc.update(recs.array(), 0, TOP_RECORD * topCount);
+            if ((int) crc.getValue() != recs.getInt(TOP_RECORD * topCount)) {
+                throw new IllegalStateException(path + " has a corrupt top-K section");
+            }
+            List<TopK.Item> top = new ArrayList<>(topCount);
+            for (int i = 0; i < topCount; i++) {
+                int o = i * TOP_RECORD;
+                top.add(new TopK.Item(recs.getInt(o), recs.getInt(o + 4), recs.getInt(o + 8)));
+            }
+            Shard shard = null;
+            if ((h.getInt(12) & FLAG_PARTIAL) != 0) {
+                ByteBuffer tr = readAt(ch, h.getLong(48) + TOP_RECORD * topCount + 4, SHARD_TRAILER);
+                crc.reset();
+                crc.update(tr.array(), 0, SHARD_TRAILER - 4);
+                if ((int) crc.getValue() != tr.getInt(SHARD_TRAILER - 4)) {
+                    throw new IllegalStateException(path + " has a corrupt shard section");
+                }
+                shard = new Shard(tr.getInt(0), tr.getInt(4), tr.getInt(8), tr.getInt(12));
+            }
+            boolean v3 = version == FORMAT_VERSION;
+            return new Contents(h.getLong(16), h.getInt(24), h.getInt(28), h.getInt(32), h.getInt(12),
+                    (version == 1) ? 0 : h.getInt(56), v3 ? h.getInt(60) : 0, v3 ? h.getInt(64) : 0,
+                    h.getLong(40), top, shard);
+        }
+    }
+
+    /** Visit every dumped center (chunk coords); a block that fails its CRC throws. */
+    static void forEachDumped(Path path, DumpVisitor visitor) throws IOException {
+        Contents c = read(path);
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer h = readAt(ch, 0, HEADER_V2);
+            long topOffset = h.getLong(48);
+            long pos = (h.getInt(8) == FORMAT_VERSION) ? HEADER : HEADER_V2;
+            while (pos < topOffset) {
+                ByteBuffer bh = readAt(ch, pos, BLOCK_HEADER);
+                int cz0 = bh.getInt(0), cx0 = bh.getInt(4), tileW = bh.getInt(8), count = bh.getInt(12);
+                int bytes = bh.getInt(16);
+                ByteBuffer p = readAt(ch, pos + BLOCK_HEADER, bytes);
+                CRC32 crc = new CRC32();
+                crc.update(p.array(), 0, bytes);
+                if ((int) crc.getValue() != bh.getInt(20)) {
+                    throw new IllegalStateException(path + ": dump block at " + pos + " failed its checksum");
+                }
+                int index = -1;
+                for (int i = 0; i < count; i++) {
+                    index += getVarint(p) + 1;
+                    int score = getVarint(p) + c.scoreBase();
+                    visitor.center(cx0 + index % tileW, cz0 + index / tileW, score);
+                }
+                pos += BLOCK_HEADER + bytes;
+            }
+        }
+    }
+
+    private static int getVarint(ByteBuffer p) {
+        int v = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = p.get();
+            v |= (b & 0x7F) << shift;
+            if (b >= 0) return v;
+        }
+    }
+
+    private static ByteBuffer readAt(FileChannel ch, long pos, int n) throws IOException {
+        ByteBuffer bb = ByteBuffer.allocate(n).order(ByteOrder.LITTLE_ENDIAN);
+        while (bb.hasRemaining()) {
+            if (ch.read(bb, pos + bb.position()) < 0) throw new IllegalStateException("result file is truncated");
+        }
+        bb.flip();
+        return bb;
+    }
+}
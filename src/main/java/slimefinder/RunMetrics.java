@@ -0,0 +1,129 @@
+package slimefinder;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Wall-clock time per run phase plus a few run facts, written as JSON for --metrics-out.
+ * A phase that runs more than once (e.g. two CSV writes) accumulates.
+ */
+final class RunMetrics {
+
+    private final long startNanos = System.nanoTime();
+    private final Map<String, Long> phaseNanos = new LinkedHashMap<>();
+    private final Map<String, Object> facts = new LinkedHashMap<>();
+
+    /** A timed phase body. */
+    interface Action<E extends Exception> {
+        void run() throws E;
+    }
+
+    /** A timed phase body with a result. */
+    interface Result<T, E extends Exception> {
+        T get() throws E;
+    }
+
+    /** Runs {@code body} as phase {@code name}: {@code metrics.time("csv_io", () -> writeCsv(path, rows))}. */
+    <E extends Exception> void time(String name, Action<E> body) throws E {
+        Phase p = phase(name);
+        try {
+            body.run();
+        } finally {
+            p.close();
+        }
+    }
+
+    /** Runs {@code body} as phase {@code name} and returns its result. */
+    <T, E extends Exception> T time(String name, Result<T, E> body) throws E {
+        Phase p = phase(name);
+        try {
+            return body.get();
+        } finally {
+            p.close();
+        }
+    }
+
+    /**
+     * Starts a phase that ends at close(), for bodies that assign locals:
+     * {@code Phase p = metrics.phase("x"); try { ... } finally { p.close(); }}.
+     */
+    Phase phase(String name) {
+        return new Phase(name, System.nanoTime());
+    }
+
+    final class Phase implements AutoCloseable {
+        private final String name;
+        private final long t0;
+
+        private Phase(String name, long t0) {
+            this.name = name;
+            this.t0 = t0;
+        }
+
+        @Override
+        public void close() {
+            synchronized (RunMetrics.this) {
+                phaseNanos.merge(name, System.nanoTime() - t0, Long::sum);
+            }
+        }
+    }
+
+    /** Records a number, boolean or string fact about the run. */
+    synchronized void put(String key, Object value) {
+        facts.put(key, value);
+    }
+
+    synchronized void write(String path) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\n  \"total_ms\": ").append(millis(System.nanoTime() - startNanos)).append(",\n");
+        sb.append("  \"phases_ms\": {");
+        appendEntries(sb, phaseNanos, true);
+        sb.append("},\n  \"run\": {");
+        appendEntries(sb, facts, false);
+        sb.append("}\n}\n");
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(path))) {
+            bw.write(sb.toString());
+        }
+    }
+
+    private static void appendEntries(StringBuilder sb, Map<String, ?> map, boolean nanos) {
+        boolean first = true;
+        for (Map.Entry<String, ?> e : map.entrySet()) {
+            sb.append(first ? "\n" : ",\n").append("    ").append(quote(e.getKey())).append(": ");
+            Object v = e.getValue();
+            if (nanos) sb.append(millis((Long) v));
+            else if (v instanceof Number || v instanceof Boolean) sb.append(v);
+            else sb.append(quote(String.valueOf(v)));
+            first = false;
+        }
+        if (!first) sb.append("\n  ");
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+
+    /** JSON string literal; also used for QueryServer responses. */
+    static String quote(String s) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) sb.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+                    else sb.append(c);
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
@@ -0,0 +1,46 @@
+package slimefinder;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Everything a tile worker shares with the rest of one search: the parsed options, kernel,
+ * optional slime cache, biome grid and dump file, the global top-K floor and run statistics.
+ */
+final class SearchContext {
+
+    final SlimeFinder.Args args;
+    final long seed;             // args.seed, except in --seeds-file batches
+    final KernelWeights kernel;
+    final SlimeCache slimeCache; // may be null
+    final BiomeOkFracGrid grid;  // biome-aware search only, else null
+    final int[] portions;        // BiomeValidator.portionTable(kernel) when grid != null
+    final ResultFile.Writer dump; // --dump-all: every center at or above the threshold, else null
+
+    /** Largest k-th-best key of any full worker heap (see SlimeFinder.processTile). */
+    final AtomicLong floor = new AtomicLong(Long.MIN_VALUE);
+
+    // Branch-and-bound statistics (tiles/centers skipped because their upper bound was too low).
+    final LongAdder tilesPruned = new LongAdder();
+    final LongAdder centersPruned = new LongAdder();
+
+    // Throughput counters for ProgressMeter (centers covered by finished tiles, slime chunks they generated).
+    final LongAdder tilesDone = new LongAdder();
+    final LongAdder centersDone = new LongAdder();
+    final LongAdder chunksDone = new LongAdder();
+
+    SearchContext(SlimeFinder.Args args, KernelWeights kernel, SlimeCache slimeCache) {
+        this(args, args.seed, kernel, slimeCache, null, null);
+    }
+
+    SearchContext(SlimeFinder.Args args, long seed, KernelWeights kernel, SlimeCache slimeCache, BiomeOkFracGrid grid,
+                  ResultFile.Writer dump) {
+        this.args = args;
+        this.seed = seed;
+        this.kernel = kernel;
+        this.slimeCache = slimeCache;
+        this.grid = grid;
+        this.portions = (grid != null) ? BiomeValidator.portionTable(kernel) : null;
+        this.dump = dump;
+    }
+}
@@ -0,0 +1,191 @@
+package slimefinder;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * --seeds-file: the fast search (plus optional biome validation) for many seeds in one process.
+ *
+ * The kernel, the work-stealing pool and every worker's TileScratch are created once and shared by
+ * all seeds. Seeds run in waves of up to --threads at a time; each seed's tile split is one task of
+ * the wave, so workers steal tiles from whichever seed still has work and small searches still keep
+ * every thread busy. Results go to one CSV keyed by seed, in seeds-file order.
+ */
+final class SeedBatch {
+
+
+    private SeedBatch() {}
+
+    /** One seed's search state: its own context (seed, floor, counters) and per-worker heaps. */
+    private static final class SeedRun {
+        final long seed;
+        final SearchContext ctx;
+        final List<PackedTopK> heaps = Collections.synchronizedList(new ArrayList<>());
+        final ThreadLocal<PackedTopK> heap;
+        List<TopK.Item> results;
+
+        SeedRun(SlimeFinder.Args args, long seed, KernelWeights kernel) {
+            this.seed = seed;
+            this.ctx = new SearchContext(args, seed, kernel, null, null, null);
+            this.heap = ThreadLocal.withInitial(() -> {
+                PackedTopK h = new PackedTopK(args.topk);
+                heaps.add(h);
+                return h;
+            });
+        }
+    }
+
+    /** Seeds from a text file: one decimal seed per line; blank lines and # comments are skipped. */
+    static List<Long> readSeeds(String path) throws IOException {
+        List<Long> seeds = new ArrayList<>();
+        try (BufferedReader br = new BufferedReader(new FileReader(path))) {
+            String line;
+            int n = 0;
+            while ((line = br.readLine()) != null) {
+                n++;
+                int hash = line.indexOf('#');
+                if (hash >= 0) line = line.substring(0, hash);
+                line = line.trim();
+                if (line.isEmpty()) continue;
+                try {
+                    seeds.add(Long.parseLong(line));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException(path + ":" + n + ": not a seed: '" + line + "'");
+                }
+            }
+        }
+        return seeds;
+    }
+
+    static void run(SlimeFinder.Args args, List<Long> seeds, RunMetrics metrics) throws Exception {
+        final int m = args.mChunks;
+        final int inner = args.innerChunks;
+        final int thrInt = (int) Math.ceil(args.threshold);
+
+        KernelWeights kernel = KernelWeights.precompute(KernelWeights.RADIUS_BLOCKS);
+        ForkJoinPool exec = new ForkJoinPool(args.threads);
+
+        TileScheduler.Size auto = TileScheduler.autoSize(2 * m + 1, args.threads, args.engine, TileScheduler.l2CacheBytes());
+        final int tileRows = (args.tileRows > 0) ? args.tileRows : auto.rows();
+        final int tileCols = (args.tileCols > 0) ? args.tileCols : auto.cols();
+        System.out.println("Tiles: " + tileRows + " x " + tileCols + " chunks");
+
+        final int mcId = args.biomes ? SlimeFinder.CubiomesMcVersionMap.toCubiomesMcId(args.mcVersion) : 0;
+        if (args.biomes) {
+            // Load the library once up front so a bad --cubiomes-lib fails before any search.
+            try (CubiomesBiomeProvider cb = new CubiomesBiomeProvider(seeds.get(0), mcId, args.cubiomesLib, mcId >= 119, true)) {
+                if (args.biomeSource == BiomeSource.GRID && !cb.hasBiomeIdExports()) {
+                    System.out.println("[WARN] " + args.cubiomesLib + " does not export biome ids; validating with --biome-source points");
+                }
+            } catch (Throwable t) {
+                System.out.println("[ERROR] Biome validation requires cubiomes backend. Failed to load.");
+                if (args.biomeDebug) t.printStackTrace(System.out);
+                exec.shutdown();
+                return;
+            }
+        }
+
+        int wave = Math.max(1, args.threads);
+        long rows = 0;
+        long t0 = System.nanoTime();
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(SlimeFinder.Args.BATCH_PATH))) {
+            bw.write("seed,x,z,score\n");
+
+            for (int w0 = 0; w0 < seeds.size(); w0 += wave) {
+                List<SeedRun> runs = new ArrayList<>();
+                for (long seed : seeds.subList(w0, Math.min(seeds.size(), w0 + wave))) {
+                    runs.add(new SeedRun(args, seed, kernel));
+                }
+
+                metrics.time("search", () -> exec.invoke(new RecursiveAction() {
+                    @Override
+                    protected void compute() {
+                        List<RecursiveAction> parts = new ArrayList<>(runs.size());
+                        for (SeedRun r : runs) {
+                            parts.add(TileScheduler.task(m, inner, tileRows, tileCols,
+                                    t -> SlimeFinder.processTile(t, r.ctx, r.heap.get())));
+                        }
+                        invokeAll(parts);
+                    }
+                }));
+                metrics.time("topk_merge", () -> {
+                    for (SeedRun r : runs) r.results = PackedTopK.reduce(r.heaps, args.topk).toItemsDesc();
+                });
+
+                if (args.biomes) {
+                    metrics.time("biome_validation", () -> {
+                        for (SeedRun r : runs) r.results = validate(args, r.seed, mcId, kernel, exec, r.results, thrInt);
+                    });
+                }
+
+                rows += metrics.time("csv_io", () -> {
+                    long n = 0;
+                    for (SeedRun r : runs) {
+                        for (TopK.Item it : r.results) {
+                            bw.write(r.seed + "," + it.x + "," + it.z + "," + it.score + "\n");
+                        }
+                        n += r.results.size();
+                    }
+                    bw.flush();
+                    return n;
+                });
+                for (SeedRun r : runs) {
+                    if (r.results.isEmpty()) {
+                        System.out.println("Seed " + r.seed + ": no centers at or above the threshold");
+                    } else {
+                        TopK.Item top = r.results.get(0);
+                        System.out.printf("Seed %d: %d rows, top x=%d z=%d score=%.0f%n",
+                                r.seed, r.results.size(), top.x, top.z, top.score);
+                    }
+                }
+            }
+        } finally {
+            exec.shutdown();
+        }
+
+        double secs = (System.nanoTime() - t0) / 1e9;
+        System.out.printf("Batch: %d seeds in %.2f s (%.2f seeds/s); wrote %s (%d rows)%n",
+                seeds.size(), secs, seeds.size() / Math.max(1e-9, secs), SlimeFinder.Args.BATCH_PATH, rows);
+        metrics.put("seeds", seeds.size());
+        metrics.put("m_chunks", m);
+        metrics.put("inner_chunks", inner);
+        metrics.put("threshold", args.threshold);
+        metrics.put("threads", args.threads);
+        metrics.put("engine", args.engine.name().toLowerCase(java.util.Locale.ROOT));
+        metrics.put("tile_rows", tileRows);
+        metrics.put("tile_cols", tileCols);
+        metrics.put("rows", rows);
+    }
+
+    /** Two-phase validation of one seed's top-K, as in a single-seed run; contexts live for this seed only. */
+    private static List<TopK.Item> validate(SlimeFinder.Args args, long seed, int mcId, KernelWeights kernel,
+                                            ForkJoinPool exec, List<TopK.Item> candidates, int thrInt) throws IOException {
+        if (candidates.isEmpty()) return candidates;
+        try (BiomeContextPool pool = BiomeContextPool.cubiomes(seed, mcId, args.cubiomesLib, mcId >= 119, true);
+             CubiomesBiomeProvider cb = new CubiomesBiomeProvider(seed, mcId, args.cubiomesLib, mcId >= 119, true)) {
+            BiomeTileStore store = null;
+            BiomeOkFracGrid grid = null;
+            if (args.biomeSource == BiomeSource.GRID && cb.hasBiomeIdExports()) {
+                store = SlimeFinder.openBiomeStore(args, seed, cb, mcId);
+                grid = BiomeOkFracGrid.createCached(cb, pool, store, args.farmY,
+                        SlimeFinder.GRID_TILE_CHUNKS, SlimeFinder.GRID_MAX_TILES);
+            }
+            try {
+                BiomeValidator validator = new BiomeValidator(seed, kernel, args.farmY, args.samples, grid);
+                List<TopK.Item> kept = validator.validate(exec, pool, candidates, thrInt);
+                kept.sort((a, b) -> Double.compare(b.score, a.score));
+                return kept;
+            } finally {
+                if (store != null) store.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package slimefinder;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * --seed-space: which seeds of a range (or a seeds file) have a center scoring at least
+ * --threshold in the small [-m,m]^2 region around spawn.
+ *
+ * Slime chunks only depend on the lower 48 bits of the seed (SlimeChunk.initialScramble masks the
+ * rest), so seeds are first collapsed to their 48-bit classes and each class is scored once. A
+ * class is one tile on the normal search path with a top-1 heap: the per-block upper bounds drop
+ * it without exact counting when nothing can reach the threshold, and once a center is found the
+ * rising floor skips every row block that cannot beat it. Each worker keeps only the best --topk
+ * classes (a PackedTopK of class keys), so memory does not grow with the range; the heaps are
+ * reduced at the end and the kept classes are scored once more for their best center. Winning
+ * classes are mapped back to the input seeds they came from (and, with --expand-classes, to all
+ * 2^16 seeds sharing each class).
+ */
+final class SeedSpace {
+
+    private static final long MASK48 = (1L << 48) - 1;
+    private static final int CLASSES_PER_TASK = 64;
+    static final long MAX_RANGE = Integer.MAX_VALUE; // classes are indexed by int
+
+    private SeedSpace() {}
+
+    /** The 48-bit classes to score, by index. */
+    private interface Classes {
+        int size();
+        long get(int i);
+    }
+
+    record Winner(long seedClass, int x, int z, int score) {}
+
+    /**
+     * Heap key of a class: score in bits 48..62, then 2^48 - 1 - class, so a larger key is a better
+     * class and equal scores keep the smaller class (the order seed_space.csv is written in).
+     */
+    static long classKey(int score, long seedClass) {
+        return ((long) score << 48) | (MASK48 - seedClass);
+    }
+
+    static long keyClass(long key) {
+        return MASK48 - (key & MASK48);
+    }
+
+    /** Parses "from:to" (inclusive, decimal longs). */
+    static long[] parseRange(String s) {
+        int colon = s.indexOf(':', 1);
+        if (colon < 0) throw new IllegalArgumentException("--seed-range must look like <from>:<to>");
+        long from;
+        long to;
+        try {
+            from = Long.parseLong(s.substring(0, colon).trim());
+            to = Long.parseLong(s.substring(colon + 1).trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("--seed-range must look like <from>:<to>");
+        }
+        if (to < from) throw new IllegalArgumentException("--seed-range: <to> must be >= <from>");
+        if (to - from >= MAX_RANGE || to - from < 0) { // negative: the difference overflowed
+            throw new IllegalArgumentException("--seed-range may cover at most " + MAX_RANGE + " seeds");
+        }
+        return new long[] {from, to};
+    }
+
+    static void run(SlimeFinder.Args args, RunMetrics metrics) throws Exception {
+        final int m = args.mChunks;
+        final int thrInt = (int) Math.ceil(args.threshold);
+
+        // Input seeds and their classes. A range shorter than 2^48 never repeats a class.
+        long[] fileSeeds = null;
+        long rangeFrom = 0;
+        Classes classes;
+        long inputSeeds;
+        if (!args.seedRange.isBlank()) {
+            long[] r = parseRange(args.seedRange);
+            long from = r[0];
+            rangeFrom = from;
+            int n = (int) (r[1] - r[0] + 1);
+            inputSeeds = n;
+            classes = new Classes() {
+                public int size() { return n; }
+                public long get(int i) { return (from + i) & MASK48; }
+            };
+        } else {
+            List<Long> seeds = SeedBatch.readSeeds(args.seedsFile);
+            fileSeeds = new long[seeds.size()];
+            for (int i = 0; i < fileSeeds.length; i++) fileSeeds[i] = seeds.get(i);
+            inputSeeds = fileSeeds.length;
+            long[] unique = new long[fileSeeds.length];
+            for (int i = 0; i < unique.length; i++) unique[i] = fileSeeds[i] & MASK48;
+            Arrays.sort(unique);
+            int n = 0;
+            for (int i = 0; i < unique.length; i++) {
+                if (n == 0 || unique[i] != unique[n - 1]) unique[n++] = unique[i];
+            }
+            final long[] u = unique;
+            final int count = n;
+            classes = new Classes() {
+                public int size() { return count; }
+                public long get(int i) { return u[i]; }
+            };
+        }
+        System.out.println("Seed space: " + inputSeeds + " seeds -> " + classes.size() + " 48-bit classes; region ["
+                + -m + "," + m + "]^2 chunks around spawn; need score >= " + thrInt);
+
+        KernelWeights kernel = KernelWeights.precompute(KernelWeights.RADIUS_BLOCKS);
+        ForkJoinPool exec = new ForkJoinPool(args.threads);
+        List<SlimeFinder.Tile> tiles = new ArrayList<>();
+        TileScheduler.cellTiles(-m, m, -m, m, args.innerChunks, tiles::add);
+
+        List<PackedTopK> heaps = Collections.synchronizedList(new ArrayList<>());
+        ThreadLocal<PackedTopK> heap = ThreadLocal.withInitial(() -> {
+            PackedTopK h = new PackedTopK(args.topk);
+            heaps.add(h);
+            return h;
+        });
+        LongAdder winners = new LongAdder();
+        LongAdder aborted = new LongAdder();
+        long t0 = System.nanoTime();
+        try {
+            metrics.time("search", () -> exec.invoke(new Range(args, kernel, tiles, classes, heap, winners, aborted, 0, classes.size())));
+        } finally {
+            exec.shutdown();
+        }
+        double secs = (System.nanoTime() - t0) / 1e9;
+
+        // Only the kept classes are scored again, for the center that earned the score.
+        PackedTopK kept = metrics.time("topk_merge", () -> PackedTopK.reduce(heaps, args.topk));
+        List<Winner> top = new ArrayList<>();
+        for (long key : kept.toSortedDesc()) {
+            long seedClass = keyClass(key);
+            TopK.Item it = bestCenter(new SearchContext(args, seedClass, kernel, null, null, null), tiles).toItemsDesc().get(0);
+            top.add(new Winner(seedClass, it.x, it.z, (int) it.score));
+        }
+        System.out.printf("Scored %d classes in %.2f s (%.0f classes/s); %d dropped by the upper bound alone; %d reach the threshold%n",
+                classes.size(), secs, classes.size() / Math.max(1e-9, secs), aborted.sum(), winners.sum());
+
+        // Back to full seeds: every input seed of each winning class, in input order.
+        long rows = 0;
+        RunMetrics.Phase csv = metrics.phase("csv_io");
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(SlimeFinder.Args.SEED_SPACE_PATH))) {
+            bw.write("seed,class48,x,z,score\n");
+            for (Winner w : top) {
+                if (args.expandClasses) {
+                    // All 2^16 seeds with these lower 48 bits.
+                    for (long hi = 0; hi < (1L << 16); hi++) {
+                        rows += writeRow(bw, (hi << 48) | w.seedClass, w);
+                    }
+                } else if (fileSeeds == null) {
+                    // The one seed of the range in this class (ranges are shorter than 2^48).
+                    long seed = rangeFrom + ((w.seedClass - rangeFrom) & MASK48);
+                    rows += writeRow(bw, seed, w);
+                } else {
+                    for (long seed : fileSeeds) {
+                        if ((seed & MASK48) == w.seedClass) rows += writeRow(bw, seed, w);
+                    }
+                }
+            }
+        } finally {
+            csv.close();
+        }
+        if (!top.isEmpty()) {
+            Winner w = top.get(0);
+            System.out.printf("Best class: %012x x=%d z=%d score=%d%n", w.seedClass, w.x, w.z, w.score);
+        }
+        System.out.println("Wrote " + SlimeFinder.Args.SEED_SPACE_PATH + " (" + rows + " seeds from " + top.size() + " classes)");
+
+        metrics.put("seeds", inputSeeds);
+        metrics.put("classes", classes.size());
+        metrics.put("classes_aborted", aborted.sum());
+        metrics.put("winners", winners.sum());
+        metrics.put("m_chunks", m);
+        metrics.put("threshold", args.threshold);
+        metrics.put("threads", args.threads);
+    }
+
+    private static int writeRow(BufferedWriter bw, long seed, Winner w) throws java.io.IOException {
+        bw.write(seed + "," + String.format("%012x", w.seedClass) + "," + w.x + "," + w.z + "," + w.score + "\n");
+        return 1;
+    }
+
+    /** The class's best center at or above the threshold, in a top-1 heap (empty if there is none). */
+    private static PackedTopK bestCenter(SearchContext ctx, List<SlimeFinder.Tile> tiles) {
+        PackedTopK best = new PackedTopK(1);
+        for (SlimeFinder.Tile t : tiles) SlimeFinder.processTile(t, ctx, best);
+        return best;
+    }
+
+    /** Classes [lo, hi); halves until CLASSES_PER_TASK are left. */
+    private static final class Range extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final SlimeFinder.Args args;
+        private final KernelWeights kernel;
+        private final List<SlimeFinder.Tile> tiles;
+        private final Classes classes;
+        private final ThreadLocal<PackedTopK> heap;
+        private final LongAdder winners;
+        private final LongAdder aborted;
+        private final int lo;
+        private final int hi;
+
+        Range(SlimeFinder.Args args, KernelWeights kernel, List<SlimeFinder.Tile> tiles, Classes classes,
+              ThreadLocal<PackedTopK> heap, LongAdder winners, LongAdder aborted, int lo, int hi) {
+            this.args = args;
+            this.kernel = kernel;
+            this.tiles = tiles;
+            this.classes = classes;
+            this.heap = heap;
+            this.winners = winners;
+            this.aborted = aborted;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo <= CLASSES_PER_TASK) {
+                for (int i = lo; i < hi; i++) scoreClass(classes.get(i));
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new Range(args, kernel, tiles, classes, heap, winners, aborted, lo, mid),
+                    new Range(args, kernel, tiles, classes, heap, winners, aborted, mid, hi));
+        }
+
+        private void scoreClass(long seedClass) {
+            SearchContext ctx = new SearchContext(args, seedClass, kernel, null, null, null);
+            PackedTopK best = bestCenter(ctx, tiles);
+            if (ctx.tilesPruned.sum() == tiles.size()) aborted.increment();
+            if (best.size() > 0) {
+                winners.increment();
+                heap.get().offer(classKey(PackedTopK.score(best.floorKey()), seedClass));
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package slimefinder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The merge command: combines the partial --bin-out files of all --shard i/n runs of one search
+ * into before_validation.csv and results.csv, exactly as one unsharded run would have written them.
+ *
+ * Every partial must come from the same search (seed, region, threshold, topk, scoring, shard
+ * count and tile size) and every shard 0..n-1 must be present exactly once. The top-Ks are merged
+ * in a PackedTopK, whose kept set does not depend on offer order, so the output is the same
+ * whatever order the shards finished in or are listed in.
+ */
+final class ShardMerge {
+
+    private ShardMerge() {}
+
+    static void run(String[] argv) throws Exception {
+        String binOut = "";
+        List<String> files = new ArrayList<>();
+        for (int i = 0; i < argv.length; i++) {
+            if (argv[i].equals("--bin-out") && i + 1 < argv.length) {
+                binOut = argv[++i];
+            } else if (argv[i].startsWith("--")) {
+                fail("Unknown merge arg: " + argv[i] + " (usage: merge [--bin-out <path>] <partial.bin>...)");
+                return;
+            } else {
+                files.add(argv[i]);
+            }
+        }
+        if (files.isEmpty()) {
+            fail("merge needs the partial --bin-out files of every shard");
+            return;
+        }
+
+        List<ResultFile.Contents> parts = new ArrayList<>(files.size());
+        for (String f : files) {
+            ResultFile.Contents c;
+            try {
+                c = ResultFile.read(Path.of(f));
+            } catch (IOException | IllegalStateException e) {
+                fail("cannot read " + f + ": " + e.getMessage());
+                return;
+            }
+            if (c.shard() == null) {
+                fail(f + " is not a shard's partial result (run with --shard i/n)");
+                return;
+            }
+            parts.add(c);
+        }
+
+        ResultFile.Contents first = parts.get(0);
+        ResultFile.Shard s0 = first.shard();
+        String[] byIndex = new String[s0.count()];
+        for (int i = 0; i < parts.size(); i++) {
+            ResultFile.Contents c = parts.get(i);
+            String why = mismatch(first, c);
+            if (why != null) {
+                fail(files.get(i) + " is from another search than " + files.get(0) + " (" + why + ")");
+                return;
+            }
+            int idx = c.shard().index();
+            if (byIndex[idx] != null) {
+                fail("shard " + idx + "/" + s0.count() + " given twice: " + byIndex[idx] + " and " + files.get(i));
+                return;
+            }
+            byIndex[idx] = files.get(i);
+        }
+        List<Integer> missing = new ArrayList<>();
+        for (int i = 0; i < byIndex.length; i++) if (byIndex[i] == null) missing.add(i);
+        if (!missing.isEmpty()) {
+            fail("missing shard(s) " + missing + " of " + s0.count());
+            return;
+        }
+
+        PackedTopK top = new PackedTopK(first.topk());
+        for (ResultFile.Contents c : parts) {
+            for (TopK.Item it : c.top()) top.offer(PackedTopK.key((int) it.score, it.x / 16, it.z / 16));
+        }
+        List<TopK.Item> out = top.toItemsDesc();
+
+        SlimeFinder.writeCsv(SlimeFinder.Args.BEFORE_PATH, out);
+        SlimeFinder.writeCsv(SlimeFinder.Args.RESULTS_PATH, out);
+        System.out.println("Merged " + parts.size() + " shards (seed " + first.seed() + ", m=" + first.mChunks()
+                + ", inner=" + first.innerChunks() + ", tiles " + s0.tileRows() + " x " + s0.tileCols() + ")");
+        System.out.println("Wrote " + SlimeFinder.Args.BEFORE_PATH + " and " + SlimeFinder.Args.RESULTS_PATH + " (" + out.size() + " rows)");
+
+        if (!binOut.isBlank()) {
+            try (ResultFile.Writer w = new ResultFile.Writer(Path.of(binOut))) {
+                w.finish(first.seed(), first.mChunks(), first.innerChunks(), first.scoreBase(),
+                        first.flags() & (ResultFile.FLAG_VALIDATED | ResultFile.FLAG_DUMP_VALIDATED), first.topk(),
+                        first.mcId(), first.farmY(), out);
+            }
+            System.out.println("Wrote " + binOut + " (" + out.size() + " top rows)");
+        }
+        if (!out.isEmpty()) {
+            TopK.Item best = out.get(0);
+            System.out.printf("Top: x=%d z=%d score=%.6f%n", best.x, best.z, best.score);
+        }
+    }
+
+    /** The first field in which partial {@code c} differs from {@code first}, or null. */
+    private static String mismatch(ResultFile.Contents first, ResultFile.Contents c) {
+        if (c.seed() != first.seed()) return "seed " + c.seed();
+        if (c.mChunks() != first.mChunks() || c.innerChunks() != first.innerChunks()) {
+            return "region m=" + c.mChunks() + " inner=" + c.innerChunks();
+        }
+        if (c.scoreBase() != first.scoreBase()) return "threshold " + c.scoreBase();
+        if (c.topk() != first.topk()) return "topk " + c.topk();
+        int scoring = ResultFile.FLAG_VALIDATED | ResultFile.FLAG_DUMP_VALIDATED;
+        if ((c.flags() & scoring) != (first.flags() & scoring)) return "biome-aware setting";
+        if (c.mcId() != first.mcId() || c.farmY() != first.farmY()) {
+            return "biome scores for mc " + c.mcId() + " at y=" + c.farmY();
+        }
+        ResultFile.Shard a = first.shard();
+        ResultFile.Shard b = c.shard();
+        if (b.count() != a.count()) return "split into " + b.count() + " shards";
+        if (b.tileRows() != a.tileRows() || b.tileCols() != a.tileCols()) {
+            return "tiles " + b.tileRows() + " x " + b.tileCols();
+        }
+        return null;
+    }
+
+    private static void fail(String message) {
+        System.out.println("Error: " + message);
+        System.exit(1);
+    }
+}
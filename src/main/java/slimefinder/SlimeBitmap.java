@@ -0,0 +1,93 @@
+package slimefinder;
+
+/**
+ * Bit-packed slime flags for a rectangle of chunks: one bit per chunk, rows of long words.
+ *
+ * For a tile of centers the rectangle is the tile plus its CR-chunk halo, so every count
+ * engine can read the flags from here instead of regenerating them. At 1 bit per chunk a
+ * 512x4096 tile (plus halo) is ~280 KB, against 4 MB for the short[] stripe of counts.
+ *
+ * Each row has one spare zero word at the end so 64-bit windows can always read word+1.
+ */
+final class SlimeBitmap {
+
+    private int kx0;
+    private int kz0;
+    private int width;
+    private int height;
+    private int wordsPerRow;
+    private long[] words = new long[0];
+    private long[] xTerms = new long[0];
+
+    /** Chunk x of column 0. */
+    int kx0() { return kx0; }
+    /** Chunk z of row 0. */
+    int kz0() { return kz0; }
+    int width() { return width; }
+    int height() { return height; }
+    int wordsPerRow() { return wordsPerRow; }
+    /** Backing words; row r starts at r * wordsPerRow(). */
+    long[] words() { return words; }
+
+    /** Generate the slime flags for chunks [kx0, kx0+width) x [kz0, kz0+height). */
+    void fill(long seed, int kx0, int kz0, int width, int height) {
+        fill(seed, null, kx0, kz0, width, height);
+    }
+
+    /**
+     * Same as {@link #fill(long, int, int, int, int)}, but rows are copied from {@code cache} when
+     * it is non-null (the caller guarantees it covers the rectangle). Rows whose cache block fails
+     * its checksum are generated instead.
+     */
+    void fill(long seed, SlimeCache cache, int kx0, int kz0, int width, int height) {
+        reshape(kx0, kz0, width, height);
+
+        boolean haveTerms = false;
+        for (int r = 0; r < height; r++) {
+            int off = r * wordsPerRow;
+            if (cache == null || !cache.copyRow(kz0 + r, kx0, width, words, off)) {
+                if (!haveTerms) {
+                    if (xTerms.length < width) xTerms = new long[width];
+                    SlimeChunk.fillXTerms(kx0, width, xTerms);
+                    haveTerms = true;
+                }
+                SlimeChunk.fillRowFromTerms(seed + SlimeChunk.zTerm(kz0 + r), xTerms, width, words, off);
+            }
+            words[off + wordsPerRow - 1] = 0L;
+        }
+    }
+
+    /** Set the geometry and make sure the backing array is large enough (contents undefined). */
+    void reshape(int kx0, int kz0, int width, int height) {
+        this.kx0 = kx0;
+        this.kz0 = kz0;
+        this.width = width;
+        this.height = height;
+        this.wordsPerRow = ((width + 63) >>> 6) + 1;
+
+        int need = wordsPerRow * height;
+        if (words.length < need) words = new long[need];
+    }
+
+    boolean get(int col, int row) {
+        return ((words[row * wordsPerRow + (col >>> 6)] >>> col) & 1L) != 0;
+    }
+
+    /**
+     * 64 bits of row {@code row} starting at column {@code col} (bit 0 = col).
+     * Columns past the row end read as 0 as long as col < width.
+     */
+    long window(int row, int col) {
+        int idx = row * wordsPerRow + (col >>> 6);
+        int sh = col & 63;
+        // (w << 1) << (63 - sh) instead of w << (64 - sh): Java masks shift counts, so sh == 0 would not clear.
+        return (words[idx] >>> sh) | ((words[idx + 1] << 1) << (63 - sh));
+    }
+
+    /** Number of slime chunks in row {@code row}, columns [col, col+len), len <= 64. */
+    int count(int row, int col, int len) {
+        if (len <= 0) return 0;
+        long mask = (len == 64) ? -1L : (1L << len) - 1;
+        return Long.bitCount(window(row, col) & mask);
+    }
+}
@@ -0,0 +1,361 @@
+package slimefinder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.zip.CRC32;
+
+/**
+ * On-disk cache of packed slime bits for a rectangle of chunks, read through MappedByteBuffers.
+ *
+ * Slime flags only depend on the lower 48 bits of the seed, so a cache built once can serve any
+ * later run on that seed (different --threshold / --topk / --inner-chunks) whose contributing
+ * chunks fit inside the cached rectangle. Those runs do no RNG work at all.
+ *
+ * File layout (little-endian):
+ *   0  long  MAGIC
+ *   8  int   FORMAT_VERSION
+ *   12 int   blockRows
+ *   16 long  seed & MASK48
+ *   24 int   kx0, kz0, width, height
+ *   40 int   wordsPerRow
+ *   44 int   blockCount
+ *   48 long  payloadBytes
+ *   56 int   CRC32 of bytes [0,56) plus the block CRC table
+ *   60 int   reserved
+ *   64 int[blockCount] CRC32 of each block of blockRows rows
+ *   payloadOffset (8-aligned): height rows of wordsPerRow longs, bit i of a row = chunk kx0+i
+ *
+ * The header CRC plus a file length check reject truncated or foreign files at open; each block's
+ * CRC is checked the first time a tile touches it, and a block that fails is regenerated with the
+ * RNG instead of being trusted. Builds write to a .tmp file that is renamed into place only when
+ * complete.
+ */
+final class SlimeCache implements AutoCloseable {
+
+    private static final long MAGIC = 0x45484341434D4C53L; // "SLMCACHE" read little-endian
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_FIXED = 64;
+    private static final int BLOCK_ROWS = 256;
+    private static final long MASK48 = (1L << 48) - 1;
+
+    private final Path path;
+    private final FileChannel ch;
+    private final long seed;
+    private final int kx0;
+    private final int kz0;
+    private final int width;
+    private final int height;
+    private final int wordsPerRow;
+    private final int blockCount;
+    private final long payloadOffset;
+    private final int[] blockCrc;
+
+    private final MappedByteBuffer[] blocks;
+    // 0 = not checked yet, 1 = CRC ok, -1 = CRC mismatch (regenerate instead of reading)
+    private final AtomicIntegerArray blockState;
+
+    private SlimeCache(Path path, FileChannel ch, long seed, int kx0, int kz0, int width, int height,
+                       int wordsPerRow, int[] blockCrc, long payloadOffset) {
+        this.path = path;
+        this.ch = ch;
+        this.seed = seed;
+        this.kx0 = kx0;
+        this.kz0 = kz0;
+        this.width = width;
+        this.height = height;
+        this.wordsPerRow = wordsPerRow;
+        this.blockCount = blockCrc.length;
+        this.blockCrc = blockCrc;
+        this.payloadOffset = payloadOffset;
+        this.blocks = new MappedByteBuffer[blockCount];
+        this.blockState = new AtomicIntegerArray(blockCount);
+    }
+
+    /**
+     * If {@code pathOrDir} is a directory the file is named after the 48-bit seed class inside it,
+     * so one directory can hold caches for many seeds.
+     */
+    static Path resolvePath(String pathOrDir, long seed) {
+        File f = new File(pathOrDir);
+        if (f.isDirectory()) {
+            return f.toPath().resolve(String.format("slime-%012x.cache", seed & MASK48));
+        }
+        return f.toPath();
+    }
+
+    /**
+     * Open the cache at {@code path} if it is valid for {@code seed} and covers the rectangle,
+     * otherwise (or when {@code rebuild} is set) build it with {@code exec} and open the result.
+     */
+    static SlimeCache openOrBuild(Path path, long seed, int kx0, int kz0, int width, int height,
+                                  boolean rebuild, ExecutorService exec) throws Exception {
+        if (!rebuild && Files.exists(path)) {
+            String why;
+            try {
+                SlimeCache c = open(path);
+                if ((c.seed & MASK48) != (seed & MASK48)) {
+                    why = "built for a different seed";
+                } else if (!c.covers(kx0, kz0, width, height)) {
+                    why = "does not cover the search region";
+                } else {
+                    System.out.println("Slime cache: reusing " + path);
+                    return c;
+                }
+                c.close();
+            } catch (IOException | IllegalStateException e) {
+                why = e.getMessage();
+            }
+            System.out.println("Slime cache: " + path + " " + why + "; rebuilding");
+        } else if (rebuild) {
+            System.out.println("Slime cache: invalidating " + path + "; rebuilding");
+        }
+
+        build(path, seed, kx0, kz0, width, height, exec);
+        return open(path);
+    }
+
+    /** Open and check header/length. Block CRCs are checked lazily on first use. */
+    static SlimeCache open(Path path) throws IOException {
+        FileChannel ch = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            ByteBuffer h = ByteBuffer.allocate(HEADER_FIXED).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(ch, h, 0);
+            h.flip();
+            if (h.getLong(0) != MAGIC) throw new IllegalStateException("is not a slime cache");
+            if (h.getInt(8) != FORMAT_VERSION) throw new IllegalStateException("has format version " + h.getInt(8));
+
+            int blockRows = h.getInt(12);
+            long seed = h.getLong(16);
+            int kx0 = h.getInt(24);
+            int kz0 = h.getInt(28);
+            int width = h.getInt(32);
+            int height = h.getInt(36);
+            int wordsPerRow = h.getInt(40);
+            int blockCount = h.getInt(44);
+            long payloadBytes = h.getLong(48);
+            int headerCrc = h.getInt(56);
+
+            if (blockRows != BLOCK_ROWS || width <= 0 || height <= 0
+                    || wordsPerRow != ((width + 63) >>> 6)
+                    || blockCount != (height + BLOCK_ROWS - 1) / BLOCK_ROWS
+                    || payloadBytes != (long) height * wordsPerRow * 8L) {
+                throw new IllegalStateException("has an inconsistent header");
+            }
+
+            ByteBuffer table = ByteBuffer.allocate(4 * blockCount).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(ch, table, HEADER_FIXED);
+            table.flip();
+
+            CRC32 crc = new CRC32();
+            crc.update(h.array(), 0, 56);
+            crc.update(table.array(), 0, table.limit());
+            if ((int) crc.getValue() != headerCrc) throw new IllegalStateException("has a corrupt header");
+
+            long payloadOffset = align8(HEADER_FIXED + 4L * blockCount);
+            if (ch.size() < payloadOffset + payloadBytes) {
+                throw new IllegalStateException("is truncated (" + ch.size() + " < " + (payloadOffset + payloadBytes) + " bytes)");
+            }
+
+            int[] blockCrc = new int[blockCount];
+            for (int b = 0; b < blockCount; b++) blockCrc[b] = table.getInt(4 * b);
+
+            return new SlimeCache(path, ch, seed, kx0, kz0, width, height, wordsPerRow, blockCrc, payloadOffset);
+        } catch (IOException | RuntimeException e) {
+            ch.close();
+            throw e;
+        }
+    }
+
+    private static void build(Path path, long seed, int kx0, int kz0, int width, int height,
+                              ExecutorService exec) throws Exception {
+        final int wordsPerRow = (width + 63) >>> 6;
+        final int blockCount = (height + BLOCK_ROWS - 1) / BLOCK_ROWS;
+        final long payloadBytes = (long) height * wordsPerRow * 8L;
+        final long payloadOffset = align8(HEADER_FIXED + 4L * blockCount);
+        final int[] crcs = new int[blockCount];
+
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+
+        System.out.println("Slime cache: building " + path + " (" + width + "x" + height + " chunks, "
+                + (payloadBytes >> 20) + " MB)");
+        long t0 = System.nanoTime();
+
+        try (RandomAccessFile raf = new RandomAccessFile(tmp.toFile(), "rw")) {
+            raf.setLength(payloadOffset + payloadBytes);
+            FileChannel ch = raf.getChannel();
+
+            long[] xTerms = new long[width];
+            SlimeChunk.fillXTerms(kx0, width, xTerms);
+
+            List<Future<?>> futures = new ArrayList<>();
+            for (int b = 0; b < blockCount; b++) {
+                final int block = b;
+                futures.add(exec.submit(() -> {
+                    int r0 = block * BLOCK_ROWS;
+                    int rows = Math.min(BLOCK_ROWS, height - r0);
+                    long off = payloadOffset + (long) r0 * wordsPerRow * 8L;
+                    // Positional writes from a heap buffer (not a mapping) so the .tmp file can be
+                    // renamed right away on every OS.
+                    ByteBuffer bb = ByteBuffer.allocate(rows * wordsPerRow * 8).order(ByteOrder.LITTLE_ENDIAN);
+
+                    long[] row = new long[wordsPerRow];
+                    for (int r = 0; r < rows; r++) {
+                        SlimeChunk.fillRowFromTerms(seed + SlimeChunk.zTerm(kz0 + r0 + r), xTerms, width, row, 0);
+                        for (int w = 0; w < wordsPerRow; w++) bb.putLong(row[w]);
+                    }
+                    bb.flip();
+
+                    CRC32 crc = new CRC32();
+                    crc.update(bb.array(), 0, bb.limit());
+                    crcs[block] = (int) crc.getValue();
+
+                    while (bb.hasRemaining()) {
+                        off += ch.write(bb, off);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> f : futures) f.get();
+
+            ByteBuffer h = ByteBuffer.allocate(HEADER_FIXED).order(ByteOrder.LITTLE_ENDIAN);
+            h.putLong(0, MAGIC);
+            h.putInt(8, FORMAT_VERSION);
+            h.putInt(12, BLOCK_ROWS);
+            h.putLong(16, seed & MASK48);
+            h.putInt(24, kx0);
+            h.putInt(28, kz0);
+            h.putInt(32, width);
+            h.putInt(36, height);
+            h.putInt(40, wordsPerRow);
+            h.putInt(44, blockCount);
+            h.putLong(48, payloadBytes);
+
+            ByteBuffer table = ByteBuffer.allocate(4 * blockCount).order(ByteOrder.LITTLE_ENDIAN);
+            for (int b = 0; b < blockCount; b++) table.putInt(4 * b, crcs[b]);
+
+            CRC32 crc = new CRC32();
+            crc.update(h.array(), 0, 56);
+            crc.update(table.array(), 0, table.capacity());
+            h.putInt(56, (int) crc.getValue());
+
+            ch.write(h, 0);
+            ch.write(table, HEADER_FIXED);
+            ch.force(true);
+        } catch (Exception e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+
+        try {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+        System.out.printf("Slime cache: built in %.1f s%n", (System.nanoTime() - t0) / 1e9);
+    }
+
+    boolean covers(int kx0, int kz0, int width, int height) {
+        return kx0 >= this.kx0 && kz0 >= this.kz0
+                && (long) kx0 + width <= (long) this.kx0 + this.width
+                && (long) kz0 + height <= (long) this.kz0 + this.height;
+    }
+
+    /**
+     * Copy chunks [kx, kx+n) of row kz into {@code dst} starting at word {@code dstOff}, bit 0 = kx.
+     * Bits past n are zero. Returns false if that row's block failed its CRC; the caller must then
+     * generate the row itself.
+     */
+    boolean copyRow(int kz, int kx, int n, long[] dst, int dstOff) {
+        int r = kz - kz0;
+        int block = r / BLOCK_ROWS;
+        MappedByteBuffer mb = block(block);
+        if (mb == null) return false;
+
+        long rowBase = (long) (r - block * BLOCK_ROWS) * wordsPerRow * 8L;
+        int bit = kx - kx0;
+        int sh = bit & 63;
+        int src = bit >>> 6;
+        int nw = (n + 63) >>> 6;
+
+        for (int w = 0; w < nw; w++) {
+            int i = src + w;
+            long lo = mb.getLong((int) (rowBase + 8L * i));
+            long hi = (i + 1 < wordsPerRow) ? mb.getLong((int) (rowBase + 8L * (i + 1))) : 0L;
+            dst[dstOff + w] = (lo >>> sh) | ((hi << 1) << (63 - sh));
+        }
+        int tail = n & 63;
+        if (tail != 0) dst[dstOff + nw - 1] &= (1L << tail) - 1;
+        return true;
+    }
+
+    /** Mapped block, verified on first use; null if its CRC does not match. */
+    private MappedByteBuffer block(int b) {
+        int st = blockState.get(b);
+        if (st < 0) return null;
+        MappedByteBuffer mb = blocks[b];
+        if (mb != null && st > 0) return mb;
+
+        synchronized (this) {
+            mb = blocks[b];
+            if (mb == null) {
+                int r0 = b * BLOCK_ROWS;
+                int rows = Math.min(BLOCK_ROWS, height - r0);
+                try {
+                    mb = ch.map(FileChannel.MapMode.READ_ONLY, payloadOffset + (long) r0 * wordsPerRow * 8L,
+                            (long) rows * wordsPerRow * 8L);
+                } catch (IOException e) {
+                    throw new RuntimeException("Slime cache: failed to map block " + b + " of " + path, e);
+                }
+                mb.order(ByteOrder.LITTLE_ENDIAN);
+                blocks[b] = mb;
+            }
+        }
+
+        if (st == 0) {
+            CRC32 crc = new CRC32();
+            crc.update(mb.duplicate());
+            if ((int) crc.getValue() != blockCrc[b]) {
+                if (blockState.compareAndSet(b, 0, -1)) {
+                    System.out.println("[WARN] Slime cache block " + b + " of " + path
+                            + " failed its checksum; regenerating those rows (rerun with --slime-cache-rebuild)");
+                }
+                return null;
+            }
+            blockState.set(b, 1);
+        }
+        return mb;
+    }
+
+    private static long align8(long v) {
+        return (v + 7) & ~7L;
+    }
+
+    private static void readFully(FileChannel ch, ByteBuffer dst, long pos) throws IOException {
+        while (dst.hasRemaining()) {
+            int n = ch.read(dst, pos);
+            if (n < 0) throw new IllegalStateException("is truncated (header)");
+            pos += n;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        ch.close();
+    }
+}
@@ -20,30 +20,109 @@ public final class SlimeChunk {
     private SlimeChunk() {}
 
     // java.util.Random constants
-    private static final long MULT = 0x5DEECE66DL;
-    private static final long ADD  = 0xBL;
-    private static final long MASK = (1L << 48) - 1;
+    static final long MULT = 0x5DEECE66DL;
+    static final long ADD  = 0xBL;
+    static final long MASK = (1L << 48) - 1;
 
     /**
      * Returns true if (chunkX, chunkZ) is a slime chunk for the given worldSeed.
      * chunkX/chunkZ are chunk coordinates, NOT block coordinates.
      */
     public static boolean isSlimeChunk(long worldSeed, int chunkX, int chunkZ) {
-        // IMPORTANT: replicate Java int overflow behavior exactly.
-        // Use long intermediates, then cast to int where the original does.
-        long seed = worldSeed;
-        seed += (int)((long)chunkX * (long)chunkX * 0x4c1906L);
-        seed += (int)((long)chunkX * 0x5ac0dbL);
-        seed += (int)((long)chunkZ * (long)chunkZ) * 0x4307a7L;
-        seed += (int)((long)chunkZ * 0x5f24fL);
-        seed ^= 0x3ad8025fL;
-
-        long rnd = initialScramble(seed);
+        return isSlimeSeed(worldSeed + xTerm(chunkX) + zTerm(chunkZ));
+    }
+
+    /**
+     * The x-only part of the seed expression: (int)(x*x*0x4c1906) + (int)(x*0x5ac0db).
+     * IMPORTANT: replicate Java int overflow behavior exactly (long intermediates, int casts
+     * where the original has them).
+     */
+    public static long xTerm(int chunkX) {
+        return (long)(int)((long)chunkX * (long)chunkX * 0x4c1906L)
+                + (int)((long)chunkX * 0x5ac0dbL);
+    }
+
+    /** The z-only part of the seed expression: (int)(z*z)*0x4307a7L + (int)(z*0x5f24f). */
+    public static long zTerm(int chunkZ) {
+        return (int)((long)chunkZ * (long)chunkZ) * 0x4307a7L
+                + (int)((long)chunkZ * 0x5f24fL);
+    }
+
+    /** xTerm for chunkX0, chunkX0+1, ... written to out[0..n). */
+    public static void fillXTerms(int chunkX0, int n, long[] out) {
+        for (int i = 0; i < n; i++) out[i] = xTerm(chunkX0 + i);
+    }
+
+    /**
+     * Slime test on the combined seed worldSeed + xTerm(x) + zTerm(z) (before the 0x3ad8025f xor).
+     * Lets callers with precomputed term tables skip the polynomial work.
+     */
+    public static boolean isSlimeSeed(long chunkSeed) {
+        long rnd = initialScramble(chunkSeed ^ 0x3ad8025fL);
         // nextInt(10)
         int v = nextIntBounded10(rnd);
         return v == 0;
     }
 
+    /** Lane count of the vector row kernel, or 0 when jdk.incubator.vector is not enabled. */
+    private static final int VECTOR_LANES = detectVectorLanes();
+
+    /**
+     * Scalar reference for {@link #fillRowFromTerms}, one isSlimeChunk call per chunk: bit i
+     * (word i>>>6, bit i&63) is set iff chunk (chunkX0+i, chunkZ) is a slime chunk. The search
+     * does not use it; SlimeChunkBench measures the row fill against it.
+     */
+    public static void fillRowScalar(long worldSeed, int chunkZ, int chunkX0, int chunkX1, long[] bits) {
+        int n = chunkX1 - chunkX0 + 1;
+        int words = (n + 63) >>> 6;
+        for (int w = 0; w < words; w++) bits[w] = 0L;
+
+        for (int i = 0; i < n; i++) {
+            if (isSlimeChunk(worldSeed, chunkX0 + i, chunkZ)) {
+                bits[i >>> 6] |= 1L << i;
+            }
+        }
+    }
+
+    /**
+     * Fill {@code bits} with the slime flags of the n chunks of one row from precomputed terms:
+     * rowSeed = worldSeed + zTerm(chunkZ), xTerms[i] = xTerm(chunkX0 + i). One add + one RNG step
+     * per chunk. Bit i is written to word {@code wordOffset} + (i>>>6), bit i&63; words past the
+     * row are left untouched.
+     *
+     * Uses the Vector API kernel when the JVM was started with --add-modules jdk.incubator.vector,
+     * otherwise the scalar loop. Both produce identical bits.
+     */
+    public static void fillRowFromTerms(long rowSeed, long[] xTerms, int n, long[] bits, int wordOffset) {
+        if (VECTOR_LANES > 0) {
+            SlimeRowVector.fillRowFromTerms(rowSeed, xTerms, n, bits, wordOffset);
+            return;
+        }
+        int words = (n + 63) >>> 6;
+        for (int w = 0; w < words; w++) bits[wordOffset + w] = 0L;
+
+        for (int i = 0; i < n; i++) {
+            if (isSlimeSeed(rowSeed + xTerms[i])) {
+                bits[wordOffset + (i >>> 6)] |= 1L << i;
+            }
+        }
+    }
+
+    /** Vector lanes used by {@link #fillRowFromTerms}, or 0 if it runs the scalar loop. */
+    public static int vectorLanes() {
+        return VECTOR_LANES;
+    }
+
+    private static int detectVectorLanes() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) return 0;
+        try {
+            return SlimeRowVector.lanes();
+        } catch (Throwable t) {
+            // Module listed but unusable (e.g. stripped runtime image) -> scalar.
+            return 0;
+        }
+    }
+
     /**
      * Matches new Random(seed) initial scrambling:
      *   this.seed = (seed ^ MULT) & MASK
@@ -0,0 +1,64 @@
+package slimefinder;
+
+import jdk.jfr.Category;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Custom JDK Flight Recorder events. They cost nothing unless a recording is running, e.g.
+ * {@code java -XX:StartFlightRecording:filename=run.jfr -jar SlimeFinder.jar ...}.
+ *
+ * NativeCall fires once per cubiomes call and is disabled by default; turn it on in a custom
+ * .jfc settings file ({@code jfr configure +slimefinder.NativeCall#enabled=true}).
+ */
+final class SlimeEvents {
+
+    private SlimeEvents() {}
+
+    @Name("slimefinder.Tile")
+    @Label("Tile")
+    @Category("SlimeFinder")
+    static final class TileEvent extends Event {
+        @Label("First Chunk Z") int cz0;
+        @Label("Last Chunk Z") int cz1;
+        @Label("First Chunk X") int cx0;
+        @Label("Last Chunk X") int cx1;
+        @Label("Centers") long centers;
+        @Label("Pruned") boolean pruned;
+    }
+
+    @Name("slimefinder.TopKMerge")
+    @Label("TopK Merge")
+    @Category("SlimeFinder")
+    static final class TopKMergeEvent extends Event {
+        @Label("Heaps") int heaps;
+        @Label("K") int k;
+    }
+
+    @Name("slimefinder.CsvIo")
+    @Label("CSV I/O")
+    @Category("SlimeFinder")
+    static final class CsvIoEvent extends Event {
+        @Label("Path") String path;
+        @Label("Rows") int rows;
+        @Label("Write") boolean write;
+    }
+
+    @Name("slimefinder.BiomeValidation")
+    @Label("Biome Validation")
+    @Category("SlimeFinder")
+    static final class BiomeValidationEvent extends Event {
+        @Label("Rows") int rows;
+        @Label("Kept") int kept;
+    }
+
+    @Name("slimefinder.NativeCall")
+    @Label("Native Call")
+    @Category("SlimeFinder")
+    @Enabled(false)
+    static final class NativeCallEvent extends Event {
+        @Label("Function") String function;
+    }
+}
@@ -1,16 +1,19 @@
 package slimefinder;
-import java.util.Collections;
 
 import java.io.BufferedWriter;
 import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.*;
 
 public final class SlimeFinder {
 
-    private static final int RADIUS_BLOCKS = 128;
     private static final int CR = 8;              // chunk radius for R=128
+    static final int GRID_TILE_CHUNKS = 32;  // BiomeOkFracGrid tile side for validation
+    static final int GRID_MAX_TILES = 1024;  // ~2 MB of quart masks
 
     public static final class Args {
         long seed;
@@ -22,17 +25,57 @@ public final class SlimeFinder {
         int topk = 50;
         boolean biomes = false;
         boolean biomeDebug = false;
+        boolean verbose = false;
+        double progressInterval = 5.0; // seconds between progress lines; 0 = off
+        String metricsOut = "";        // optional JSON file with per-phase timings
         int threads = Math.max(1, Runtime.getRuntime().availableProcessors());
         String cubiomesLib = "";
         String mcVersion = ""; // optional convenience: e.g. 1.21.11, 1.20.1, 1.19.4, 1.18.2
+        BiomeSource biomeSource = BiomeSource.GRID;
+        boolean biomeAware = false;    // subtract fully blocked slime chunks during the search itself
 
         // performance knobs
-        int tileRows = 512;      // z-tiling height in centers (chunks). 512 is a good default.
-        int tileCols = 4096;    // x-tiling width in centers (chunks). Keeps stripe arrays small.
+        int tileRows = 0;        // z-tiling height in centers (chunks). 0 = auto (L2 size and thread count)
+        int tileCols = 0;        // x-tiling width in centers (chunks). 0 = auto
+        CountEngine engine = CountEngine.SCATTER;
+        boolean prune = true;    // per-block upper bounds before exact scoring (never changes results)
+
+        // persistent slime bitmap cache (see SlimeCache)
+        String slimeCache = "";            // file, or directory holding one file per 48-bit seed
+        boolean slimeCacheRebuild = false; // ignore and overwrite an existing cache
+
+        // persistent biome grid tiles (see BiomeTileStore)
+        String biomeStore = "";            // file, or directory holding one file per seed/version/farm-y
+        int biomeStoreMaxMb = 512;         // size cap of the store file
+
+        // outputs
+        boolean csv = true;      // before_validation.csv / results.csv (--no-csv turns them off)
+        String binOut = "";      // binary ResultFile: top-K, plus every center above the threshold with dumpAll
+        boolean dumpAll = false;
+        String seedsFile = "";   // batch mode: one search per seed listed in this file
+        boolean seedSpace = false;     // score 48-bit seed classes near spawn instead of one world
+        String seedRange = "";         // seed-space input: <from>:<to>, else seedsFile
+        boolean expandClasses = false; // seed-space output: all 2^16 seeds of each winning class
+
+        // tile completion journal (see CheckpointJournal)
+        String checkpoint = "";  // journal path; empty = no checkpointing
+        boolean resume = false;  // continue from the journal instead of starting a new one
+
+        String extendFrom = "";  // --bin-out file of a smaller search to grow instead of rescanning
+
+        // --shard i/n: this process scans every n-th tile from i and writes a partial --bin-out file
+        int shardIndex = 0;
+        int shardCount = 0;      // 0 = not sharded
+
+        // query server (see QueryServer)
+        boolean serve = false;   // answer JSON requests on stdin/stdout
+        int servePort = -1;      // or on this localhost TCP port (0 = any free port)
 
         // Fixed output paths
-        final String beforePath = "before_validation.csv";
-        final String resultsPath = "results.csv";
+        static final String BEFORE_PATH = "before_validation.csv";
+        static final String RESULTS_PATH = "results.csv";
+        static final String BATCH_PATH = "batch_results.csv";
+        static final String SEED_SPACE_PATH = "seed_space.csv";
     }
 
     private static void printUsage() {
@@ -43,25 +86,79 @@ public final class SlimeFinder {
             Usage (from source):
               ./gradlew run --args="--seed <long> --m-chunks <int> [options]"
 
+            Merging shards:
+              java -jar SlimeFinder.jar merge [--bin-out <path>] <partial.bin>...
+                                    Combine the --bin-out files of all --shard runs into before_validation.csv
+                                    and results.csv (and optionally one complete --bin-out file)
+
+            Exporting a result file:
+              java -jar SlimeFinder.jar export <result.bin> <out.csv>
+                                    Write every --dump-all center of a --bin-out file (or, without dump
+                                    blocks, its top-K rows) as x,z,score CSV
+
             Required:
               --seed <long>          World seed (64-bit)
               --m-chunks <int>       Search square of centers in chunk coords: [-m,m] x [-m,m]
 
+            Batch (instead of --seed):
+              --seeds-file <path>    Run the search for every seed in the file (one per line, # comments) in one
+                                    process; writes batch_results.csv (seed,x,z,score)
+
+            Seed space (instead of --seed):
+              --seed-space           Find seeds whose slime layout near spawn reaches --threshold: seeds are
+                                    collapsed to 48-bit classes, each class is scored once over [-m,m]^2
+                                    (keep --m-chunks small), winners go to seed_space.csv
+              --seed-range <a>:<b>   Seeds a..b (at most 2^31 - 1), or use --seeds-file
+              --expand-classes       List all 65536 seeds of every winning class, not just the input ones
+
+            Query server (instead of a search; --m-chunks not needed):
+              --serve                Answer line-delimited JSON requests (score, top, breakdown, stats, shutdown) on stdin;
+                                    responses on stdout, logs on stderr
+              --serve-port <int>     Same on localhost TCP (0 = pick a free port); {"op":"shutdown"} stops it
+
             Common options:
               --threshold <double>   Minimum score to keep (default 6.0)
               --threads <int>        Worker threads (default = CPU count)
               --topk <int>           Keep top K in before_validation.csv (default 50)
               --inner-chunks <int>   Skip centers inside [-inner,inner]^2 (default 0; ring search when >0)
+              --verbose              Print every tile and the bytes it allocated (steady state should be ~0)
+              --progress-interval <s> Seconds between progress lines (default 5; 0 = off)
+              --metrics-out <path>   Write per-phase timings and run facts as JSON
+              --bin-out <path>       Write the final top-K to a compact binary result file
+              --dump-all             Also stream every center scoring >= threshold into --bin-out (not just the top-K)
+              --no-csv               Do not write before_validation.csv / results.csv
+              --engine <name>        Counting engine: scatter (default), span (row-span prefix sums) or bits
+                                    (popcount over a bit-packed slime map); all give the same results
+              --no-prune             Disable per-block upper-bound pruning (for comparison; results are identical)
+              --tile-rows <int>      Tile height in chunks (default: auto from L2 cache size and thread count)
+              --tile-cols <int>      Tile width in chunks (default: auto)
+              --checkpoint <path>    Journal every finished tile (and its top-K) to this file, flushed every 10 s
+              --resume               Continue the search recorded in --checkpoint: only missing tiles are scanned
+              --extend-from <path>   Grow the search in this --bin-out file to the new region: only centers it did
+                                    not cover are scanned, and both top-Ks are merged
+              --shard <i>/<n>        Scan only shard i (0..n-1) of n: every n-th tile. Writes just the partial
+                                    --bin-out file; combine all n with the merge command
+
+            Slime cache (optional):
+              --slime-cache <path>   Reuse packed slime bits from this file (or directory: one file per seed);
+                                    built on first use, rebuilt if it is for another seed or too small
+              --slime-cache-rebuild  Invalidate the existing cache file and rebuild it
 
             Biome validation (optional):
               --biomes               Validate blocked biomes after fast search (1.18+: Mushroom Fields; 1.19+: Deep Dark + Mushroom Fields)
               --farm-y <int>         Y level for biome checks (default -64)
-              --samples <int>        Samples per axis per chunk (default 4)
+              --samples <int>        Samples per axis per chunk with --biome-source points (default 4)
               --cubiomes-lib <path>  Path to native libcubiomeswrap library (optional; required if --biomes is used)
                                     - macOS:   native/libcubiomeswrap.dylib
                                     - Linux:   native/libcubiomeswrap.so
                                     - Windows: native/libcubiomeswrap.dll
               --mc-version <ver>     Minecraft version (e.g., 1.21.11, 1.20.1, 1.18.2). Required if --biomes is used.
+              --biome-source <name>  grid (default: cached quart-resolution masks) or points (block lookups per sample)
+              --biome-aware          Apply the grid biome test inside the fast search instead of validating afterwards
+                                    (top-K holds validated scores; needs --biomes and the grid source)
+              --biome-store <path>   Keep grid biome tiles in this file (or directory: one file per seed, version
+                                    and farm-y) so later runs on the same world skip biome generation
+              --biome-store-max-mb <int> Size cap of the biome store file (default 512)
 
             Examples (Release ZIP):
               java -jar SlimeFinder.jar --seed 11868470311385 --m-chunks 10000 --threshold 50 --threads 8
@@ -94,9 +191,35 @@ public final class SlimeFinder {
                 case "--topk" -> { a.topk = Integer.parseInt(require(v, k)); i++; }
                 case "--biomes" -> { a.biomes = true; }
                 case "--biome-debug" -> { a.biomeDebug = true; }
+                case "--verbose" -> { a.verbose = true; }
+                case "--progress-interval" -> { a.progressInterval = Double.parseDouble(require(v, k)); i++; }
+                case "--metrics-out" -> { a.metricsOut = require(v, k); i++; }
+                case "--bin-out" -> { a.binOut = require(v, k); i++; }
+                case "--dump-all" -> { a.dumpAll = true; }
+                case "--no-csv" -> { a.csv = false; }
+                case "--seeds-file" -> { a.seedsFile = require(v, k); i++; }
+                case "--seed-space" -> { a.seedSpace = true; }
+                case "--seed-range" -> { a.seedRange = require(v, k); i++; }
+                case "--expand-classes" -> { a.expandClasses = true; }
                 case "--threads" -> { a.threads = Integer.parseInt(require(v, k)); i++; }
                 case "--cubiomes-lib" -> { a.cubiomesLib = require(v, k); i++; }
                 case "--mc-version" -> { a.mcVersion = require(v, k).trim(); i++; }
+                case "--biome-source" -> { a.biomeSource = BiomeSource.parse(require(v, k)); i++; }
+                case "--biome-aware" -> { a.biomeAware = true; }
+                case "--engine" -> { a.engine = CountEngine.parse(require(v, k)); i++; }
+                case "--no-prune" -> { a.prune = false; }
+                case "--slime-cache" -> { a.slimeCache = require(v, k); i++; }
+                case "--slime-cache-rebuild" -> { a.slimeCacheRebuild = true; }
+                case "--biome-store" -> { a.biomeStore = require(v, k); i++; }
+                case "--biome-store-max-mb" -> { a.biomeStoreMaxMb = Integer.parseInt(require(v, k)); i++; }
+                case "--tile-rows" -> { a.tileRows = Integer.parseInt(require(v, k)); i++; }
+                case "--tile-cols" -> { a.tileCols = Integer.parseInt(require(v, k)); i++; }
+                case "--checkpoint" -> { a.checkpoint = require(v, k); i++; }
+                case "--resume" -> { a.resume = true; }
+                case "--extend-from" -> { a.extendFrom = require(v, k); i++; }
+                case "--shard" -> { parseShard(a, require(v, k)); i++; }
+                case "--serve" -> { a.serve = true; }
+                case "--serve-port" -> { a.servePort = Integer.parseInt(require(v, k)); a.serve = true; i++; }
 
                 case "--help" -> {
                     printUsage();
@@ -105,15 +228,101 @@ public final class SlimeFinder {
                 default -> throw new IllegalArgumentException("Unknown arg: " + k);
             }
         }
-        if (a.mChunks == 0 && !contains(argv, "--m-chunks")) {
+        if (a.mChunks == 0 && !contains(argv, "--m-chunks") && !a.serve) {
             throw new IllegalArgumentException("Missing required --m-chunks");
         }
-        if (!contains(argv, "--seed")) {
-            throw new IllegalArgumentException("Missing required --seed");
+        if (a.seedSpace) {
+            if (a.seedRange.isBlank() == a.seedsFile.isBlank()) {
+                throw new IllegalArgumentException("--seed-space needs exactly one of --seed-range or --seeds-file");
+            }
+            if (!a.seedRange.isBlank()) SeedSpace.parseRange(a.seedRange);
+            if (contains(argv, "--seed")) throw new IllegalArgumentException("--seed-space replaces --seed; pass only one");
+            if (a.topk < 1) throw new IllegalArgumentException("--topk must be at least 1 with --seed-space");
+            if (a.biomes) {
+                throw new IllegalArgumentException("--biomes is not supported with --seed-space (biomes depend on all 64 seed bits;"
+                        + " check the winners with --seeds-file)");
+            }
+            if (!a.slimeCache.isBlank() || !a.binOut.isBlank()) {
+                throw new IllegalArgumentException("--slime-cache and --bin-out are not supported with --seed-space");
+            }
+        } else if (!a.seedRange.isBlank() || a.expandClasses) {
+            throw new IllegalArgumentException("--seed-range and --expand-classes need --seed-space");
+        }
+        if (!contains(argv, "--seed") && a.seedsFile.isBlank() && !a.seedSpace) {
+            throw new IllegalArgumentException("Missing required --seed (or --seeds-file / --seed-space)");
+        }
+        if (!a.seedsFile.isBlank() && !a.seedSpace) {
+            if (contains(argv, "--seed")) throw new IllegalArgumentException("--seeds-file replaces --seed; pass only one");
+            if (!a.slimeCache.isBlank()) throw new IllegalArgumentException("--slime-cache is not supported with --seeds-file");
+            if (a.biomeAware) throw new IllegalArgumentException("--biome-aware is not supported with --seeds-file");
+            if (!a.binOut.isBlank()) throw new IllegalArgumentException("--bin-out is not supported with --seeds-file (results go to batch_results.csv)");
+            // A single store file holds one seed: every batch seed would recreate it over the previous one.
+            if (!a.biomeStore.isBlank() && !new java.io.File(a.biomeStore).isDirectory()) {
+                throw new IllegalArgumentException("--biome-store must be an existing directory with --seeds-file (one store file per seed)");
+            }
+        }
+        if (a.resume && a.checkpoint.isBlank()) {
+            throw new IllegalArgumentException("--resume requires --checkpoint");
+        }
+        if (!a.checkpoint.isBlank()) {
+            if (!a.seedsFile.isBlank() || a.seedSpace) {
+                throw new IllegalArgumentException("--checkpoint is not supported with --seeds-file or --seed-space");
+            }
+            if (a.dumpAll) {
+                throw new IllegalArgumentException("--checkpoint cannot resume a --dump-all stream; drop one of them");
+            }
+        }
+        if (!a.extendFrom.isBlank()) {
+            if (!a.seedsFile.isBlank() || a.seedSpace) {
+                throw new IllegalArgumentException("--extend-from is not supported with --seeds-file or --seed-space");
+            }
+            if (!a.checkpoint.isBlank() || a.dumpAll) {
+                throw new IllegalArgumentException("--extend-from cannot be combined with --checkpoint or --dump-all");
+            }
+        }
+        if (a.shardCount > 0) {
+            if (a.binOut.isBlank()) throw new IllegalArgumentException("--shard requires --bin-out (the partial result file)");
+            if (!a.seedsFile.isBlank() || a.seedSpace || !a.checkpoint.isBlank() || !a.extendFrom.isBlank() || a.dumpAll) {
+                throw new IllegalArgumentException("--shard cannot be combined with --seeds-file, --seed-space, --checkpoint,"
+                        + " --extend-from or --dump-all");
+            }
+            if (a.biomes && !a.biomeAware) {
+                throw new IllegalArgumentException("--shard keeps fast-search scores; use --biome-aware to include biomes");
+            }
+            a.csv = false; // a shard's top-K is not a result; merge writes the CSVs
+        }
+        if (a.serve) {
+            if (!contains(argv, "--seed")) throw new IllegalArgumentException("--serve requires --seed");
+            if (!a.seedsFile.isBlank() || a.seedSpace || a.shardCount > 0 || !a.checkpoint.isBlank()
+                    || !a.extendFrom.isBlank() || !a.binOut.isBlank() || !a.slimeCache.isBlank()) {
+                throw new IllegalArgumentException("--serve answers queries only; drop the search and output options");
+            }
+            if (contains(argv, "--serve-port") && (a.servePort < 0 || a.servePort > 65535)) throw new IllegalArgumentException("--serve-port must be in [0, 65535]");
+            if (a.biomes && a.biomeSource != BiomeSource.GRID) {
+                throw new IllegalArgumentException("--serve scores biomes on the grid; drop --biome-source points");
+            }
         }
         if (a.innerChunks < 0) {
             throw new IllegalArgumentException("--inner-chunks must be >= 0");
         }
+        if (a.mChunks < 0 || a.mChunks >= PackedTopK.COORD_LIMIT - CR) {
+            throw new IllegalArgumentException("--m-chunks must be in [0, " + (PackedTopK.COORD_LIMIT - CR - 1) + "]");
+        }
+        if (a.progressInterval < 0) {
+            throw new IllegalArgumentException("--progress-interval must be >= 0");
+        }
+        if (a.tileRows < 0 || a.tileCols < 0) {
+            throw new IllegalArgumentException("--tile-rows and --tile-cols must be >= 0 (0 = auto)");
+        }
+        if (a.dumpAll && a.binOut.isBlank()) {
+            throw new IllegalArgumentException("--dump-all requires --bin-out");
+        }
+        if (!a.csv && a.binOut.isBlank()) {
+            throw new IllegalArgumentException("--no-csv requires --bin-out (otherwise nothing is written)");
+        }
+        if (a.biomeStoreMaxMb <= 0) {
+            throw new IllegalArgumentException("--biome-store-max-mb must be > 0");
+        }
         if (a.innerChunks > a.mChunks) {
             throw new IllegalArgumentException("--inner-chunks must be <= --m-chunks");
         }
@@ -121,9 +330,33 @@ public final class SlimeFinder {
         if (a.biomes && (a.mcVersion == null || a.mcVersion.isBlank())) {
             throw new IllegalArgumentException("--biomes requires --mc-version (e.g., 1.21.11)");
         }
+        if (a.biomeAware && !a.biomes) {
+            throw new IllegalArgumentException("--biome-aware requires --biomes");
+        }
+        if (a.biomeAware && a.biomeSource != BiomeSource.GRID) {
+            throw new IllegalArgumentException("--biome-aware works on the grid; drop --biome-source points");
+        }
+        if (contains(argv, "--samples") && a.biomeSource != BiomeSource.POINTS) {
+            System.out.println("[WARN] --samples is ignored by --biome-source grid (each chunk is tested on its 4x4 quart cells);"
+                    + " add --biome-source points to sample blocks");
+        }
         return a;
     }
 
+    private static void parseShard(Args a, String v) {
+        int slash = v.indexOf('/');
+        try {
+            if (slash < 0) throw new NumberFormatException();
+            a.shardIndex = Integer.parseInt(v.substring(0, slash).trim());
+            a.shardCount = Integer.parseInt(v.substring(slash + 1).trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("--shard must look like <i>/<n>, e.g. 0/4");
+        }
+        if (a.shardCount < 1 || a.shardIndex < 0 || a.shardIndex >= a.shardCount) {
+            throw new IllegalArgumentException("--shard " + v + ": need n >= 1 and 0 <= i < n");
+        }
+    }
+
     private static boolean contains(String[] argv, String key) {
         for (String s : argv) if (s.equals(key)) return true;
         return false;
@@ -134,71 +367,64 @@ public final class SlimeFinder {
         return v;
     }
 
-    private static final class CsvRow {
-        final int x;
-        final int z;
-        final Double score; // may be null if not provided
-        CsvRow(int x, int z, Double score) {
-            this.x = x;
-            this.z = z;
-            this.score = score;
+    static void writeCsv(String path, List<TopK.Item> items) throws Exception {
+        SlimeEvents.CsvIoEvent ev = new SlimeEvents.CsvIoEvent();
+        ev.begin();
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(path))) {
+            bw.write("x,z,score\n");
+            for (TopK.Item it : items) {
+                bw.write(it.x + "," + it.z + "," + it.score + "\n");
+            }
         }
+        commitCsv(ev, path, items.size(), true);
     }
 
-    private static List<CsvRow> readCsvXZ(String path) throws Exception {
-        List<CsvRow> rows = new ArrayList<>();
-        try (java.io.BufferedReader br = new java.io.BufferedReader(new java.io.FileReader(path))) {
-            String line;
-            boolean first = true;
-            while ((line = br.readLine()) != null) {
-                line = line.trim();
-                if (line.isEmpty()) continue;
-                if (first) { first = false; continue; }
-                String[] parts = line.split(",");
-                if (parts.length < 2) continue;
-                int x = Integer.parseInt(parts[0].trim());
-                int z = Integer.parseInt(parts[1].trim());
-                Double score = null;
-                if (parts.length >= 3) {
-                    String s = parts[2].trim();
-                    if (!s.isEmpty()) {
-                        try { score = Double.parseDouble(s); } catch (NumberFormatException ignored) {}
-                    }
-                }
-                rows.add(new CsvRow(x, z, score));
-            }
+    private static void commitCsv(SlimeEvents.CsvIoEvent ev, String path, int rows, boolean write) {
+        if (ev.shouldCommit()) {
+            ev.path = path;
+            ev.rows = rows;
+            ev.write = write;
+            ev.commit();
         }
-        return rows;
     }
 
-        private record Tile(int cz0, int cz1, int cx0, int cx1) {}
-    private record TileResult(Tile tile, TopK top) {}
-
-    private static List<Tile> buildTiles(int m, int inner, int tileRows, int tileCols) {
-        List<Tile> tiles = new ArrayList<>();
-
-        for (int cz0 = -m; cz0 <= m; cz0 += tileRows) {
-            int cz1 = Math.min(m, cz0 + tileRows - 1);
+    record Tile(int cz0, int cz1, int cx0, int cx1) {}
 
-            for (int cx0 = -m; cx0 <= m; cx0 += tileCols) {
-                int cx1 = Math.min(m, cx0 + tileCols - 1);
-
-                // Ring search: skip tiles fully contained in the inner square.
-                if (inner > 0
-                        && cx0 >= -inner && cx1 <= inner
-                        && cz0 >= -inner && cz1 <= inner) {
-                    continue;
-                }
-
-                tiles.add(new Tile(cz0, cz1, cx0, cx1));
-            }
+    /**
+     * Fast search of one tile: every center scoring at least the threshold is offered to {@code out}
+     * (the worker's own heap; it accumulates across tiles).
+     *
+     * ctx.floor is the search-wide "k-th best key so far": the largest floorKey() of any full
+     * worker heap. A center whose key is not above it can never make the global top-K, so it is
+     * skipped without touching the heap.
+     *
+     * With pruning on, an upper bound is computed per BlockBound.BLOCK^2 block of centers first;
+     * blocks whose bound is below the bar are never scored, and if no block survives the tile's
+     * counting pass is skipped entirely.
+     */
+    static void processTile(Tile t, SearchContext ctx, PackedTopK out) {
+        SlimeEvents.TileEvent ev = new SlimeEvents.TileEvent();
+        ev.begin();
+        boolean scored = scoreTile(t, ctx, out);
+
+        long centers = (long) (t.cz1() - t.cz0() + 1) * (t.cx1() - t.cx0() + 1);
+        ctx.tilesDone.increment();
+        ctx.centersDone.add(centers);
+        ctx.chunksDone.add((long) (t.cz1() - t.cz0() + 1 + 2 * CR) * (t.cx1() - t.cx0() + 1 + 2 * CR));
+        if (ev.shouldCommit()) {
+            ev.cz0 = t.cz0();
+            ev.cz1 = t.cz1();
+            ev.cx0 = t.cx0();
+            ev.cx1 = t.cx1();
+            ev.centers = centers;
+            ev.pruned = !scored;
+            ev.commit();
         }
-
-        return tiles;
     }
 
-    private static TopK processTile(Tile t, Args args, KernelWeights kernel) {
-        final int m = args.mChunks;
+    /** processTile without the bookkeeping; false if the whole tile was pruned. */
+    private static boolean scoreTile(Tile t, SearchContext ctx, PackedTopK out) {
+        final Args args = ctx.args;
         final int inner = args.innerChunks;
 
         final int cz0 = t.cz0();
@@ -208,70 +434,203 @@ public final class SlimeFinder {
 
         final int tileH = cz1 - cz0 + 1;
         final int tileW = cx1 - cx0 + 1;
-        final int stripeSize = tileW * tileH;
 
-        // Local stripe counts for this tile only.
-        short[] stripe = new short[stripeSize];
+        TileScratch scratch = TileScratch.forThread(ctx.kernel);
 
-        // Contributing slime chunks range.
-        final int kzMin = cz0 - CR;
-        final int kzMax = cz1 + CR;
+        // Slime flags for the tile plus its CR halo, generated once and shared by every engine.
+        SlimeBitmap bm = scratch.bitmap;
+        bm.fill(ctx.seed, ctx.slimeCache, cx0 - CR, cz0 - CR, tileW + 2 * CR, tileH + 2 * CR);
 
-        int kxMin = cx0 - CR;
-        int kxMax = cx1 + CR;
+        final int thrInt = (int)Math.ceil(args.threshold);
+        final int B = BlockBound.BLOCK;
+        final int blocksPerRow = (tileW + B - 1) / B;
+
+        // A dump needs every center at or above the threshold, not just those that beat the top-K floor.
+        final boolean dumping = ctx.dump != null;
+
+        int[] bounds = null;
+        if (args.prune) {
+            long floorKey = Math.max(out.floorKey(), ctx.floor.get());
+            int thr = (floorKey >= 0 && !dumping) ? Math.max(thrInt, PackedTopK.score(floorKey)) : thrInt;
+
+            int blockRows = (tileH + B - 1) / B;
+            bounds = scratch.bounds(blockRows * blocksPerRow);
+            long pruned = 0;
+            for (int br = 0; br < blockRows; br++) {
+                int r0 = br * B;
+                int h = Math.min(B, tileH - r0);
+                for (int bc = 0; bc < blocksPerRow; bc++) {
+                    int c0 = bc * B;
+                    int ub = scratch.blockBound.bound(bm, c0, r0);
+                    bounds[br * blocksPerRow + bc] = ub;
+                    if (ub < thr) pruned += (long) h * Math.min(B, tileW - c0);
+                }
+            }
+            ctx.centersPruned.add(pruned);
+            if (pruned == (long) tileW * tileH) {
+                ctx.tilesPruned.increment();
+                return false;
+            }
+        }
+
+        // Biome-aware search: chunks whose circle portion is fully blocked are subtracted per center.
+        // The block bounds above come from the raw bitmap, so they stay valid upper bounds.
+        short[] penalty = null;
+        if (ctx.grid != null) {
+            penalty = scratch.penalty(tileW * tileH);
+            short[] masks = scratch.masks(bm.width() * bm.height());
+            ctx.grid.fillMasks(bm.kx0(), bm.kz0(), bm.width(), bm.height(), masks);
+            biomePenalty(bm, masks, ctx.portions, ctx.kernel, tileW, tileH, penalty);
+        }
 
-        // Clamp to global contributing range.
-        int globalKxMin = -m - CR;
-        int globalKxMax =  m + CR;
-        if (kxMin < globalKxMin) kxMin = globalKxMin;
-        if (kxMax > globalKxMax) kxMax = globalKxMax;
+        short[] stripe = null;
+        if (args.engine != CountEngine.BITS) {
+            // Local stripe counts for this tile only (scatter accumulates, span overwrites).
+            stripe = scratch.stripe(tileW * tileH, args.engine == CountEngine.SCATTER);
 
-        for (int kz = kzMin; kz <= kzMax; kz++) {
-            for (int kx = kxMin; kx <= kxMax; kx++) {
-                if (!SlimeChunk.isSlimeChunk(args.seed, kx, kz)) continue;
+            switch (args.engine) {
+                case SCATTER -> scatterCounts(bm, tileW, tileH, ctx.kernel, stripe);
+                case SPAN -> scratch.span.count(bm, tileW, tileH, stripe);
+                default -> throw new IllegalStateException("engine " + args.engine);
+            }
+        }
 
-                // Scatter +1 to every center whose 128-block circle intersects this chunk.
-                for (int dz = -CR; dz <= CR; dz++) {
-                    int cz = kz - dz;
-                    if (cz < cz0 || cz > cz1) continue;
+        ResultFile.TileDump dump = null;
+        if (dumping) {
+            dump = scratch.dump;
+            dump.begin(cz0, cx0, tileW, thrInt);
+        }
 
-                    int rowBase = (cz - cz0) * tileW;
-                    for (int dx = -CR; dx <= CR; dx++) {
-                        int cx = kx - dx;
-                        if (cx < cx0 || cx > cx1) continue;
-                        if (!kernel.intersects(dx, dz)) continue;
+        for (int r = 0; r < tileH; r++) {
+            // Refresh the bar once per row: the global floor only rises.
+            long floorKey = Math.max(out.floorKey(), ctx.floor.get());
+            int thr = (floorKey >= 0) ? Math.max(thrInt, PackedTopK.score(floorKey)) : thrInt;
+            int bar = dumping ? thrInt : thr;
 
-                        int idx = rowBase + (cx - cx0);
-                        stripe[idx] = (short)(stripe[idx] + 1);
+            int cz = cz0 + r;
+            int base = r * tileW;
+            int blockBase = (r / B) * blocksPerRow;
+            for (int c0 = 0; c0 < tileW; c0 += B) {
+                if (bounds != null && bounds[blockBase + c0 / B] < bar) continue;
+
+                int c1 = Math.min(tileW, c0 + B);
+                for (int c = c0; c < c1; c++) {
+                    // BITS counts straight from the bitmap; no per-center stripe at all.
+                    int s = (stripe != null) ? (stripe[base + c] & 0xFFFF) : scratch.bits.count(bm, c, r);
+                    if (penalty != null) s -= penalty[base + c];
+                    if (s < bar) continue;
+                    if (dumping) {
+                        if (inInner(inner, cx0 + c, cz)) continue;
+                        dump.add(c, r, s);
+                        if (s < thr) continue;
                     }
+                    offerCenter(out, inner, cx0 + c, cz, s, floorKey);
                 }
             }
+
+            if (out.isFull()) {
+                long mine = out.floorKey();
+                if (mine > ctx.floor.get()) ctx.floor.accumulateAndGet(mine, Math::max);
+            }
         }
+        if (dumping) ctx.dump.append(dump);
+        return true;
+    }
 
-        TopK localTop = new TopK(args.topk);
-        final int thrInt = (int)Math.ceil(args.threshold);
+    /** Ring search: centers inside the inner square are skipped. */
+    private static boolean inInner(int inner, int cx, int cz) {
+        return inner > 0 && Math.abs(cx) <= inner && Math.abs(cz) <= inner;
+    }
 
-        for (int r = 0; r < tileH; r++) {
-            int cz = cz0 + r;
-            int base = r * tileW;
-            for (int c = 0; c < tileW; c++) {
-                int s = stripe[base + c] & 0xFFFF;
-                if (s < thrInt) continue;
+    private static void offerCenter(PackedTopK out, int inner, int cx, int cz, int s, long floorKey) {
+        if (inInner(inner, cx, cz)) return;
 
-                int cx = cx0 + c;
+        long key = PackedTopK.key(s, cx, cz);
+        if (key > floorKey) out.offer(key);
+    }
 
-                // Ring search: skip centers inside the inner square.
-                if (inner > 0 && Math.abs(cx) <= inner && Math.abs(cz) <= inner) {
-                    continue;
-                }
+    /**
+     * Reference engine: scatter +1 from each slime chunk into every center it contributes to.
+     * The bitmap covers the tileW x tileH centers plus a CR halo.
+     */
+    private static void scatterCounts(SlimeBitmap bm, int tileW, int tileH, KernelWeights kernel, short[] stripe) {
+        final long[] words = bm.words();
+        final int wpr = bm.wordsPerRow();
+
+        // Bitmap (col, row) is chunk offset (col - CR, row - CR) from the tile's first center.
+        for (int br = 0; br < bm.height(); br++) {
+            int kz = br - CR;
+            for (int w = 0; w < wpr; w++) {
+                long word = words[br * wpr + w];
+                while (word != 0) {
+                    int kx = (w << 6) + Long.numberOfTrailingZeros(word) - CR;
+                    word &= word - 1;
+
+                    // Scatter +1 to every center whose 128-block circle intersects this chunk.
+                    for (int dz = -CR; dz <= CR; dz++) {
+                        int r = kz - dz;
+                        if (r < 0 || r >= tileH) continue;
 
-                int x0 = 16 * cx;
-                int z0 = 16 * cz;
-                localTop.offer(x0, z0, (double)s);
+                        int rowBase = r * tileW;
+                        for (int dx = -CR; dx <= CR; dx++) {
+                            int c = kx - dx;
+                            if (c < 0 || c >= tileW) continue;
+                            if (!kernel.intersects(dx, dz)) continue;
+
+                            int idx = rowBase + c;
+                            stripe[idx] = (short)(stripe[idx] + 1);
+                        }
+                    }
+                }
             }
         }
+    }
+
+    /**
+     * For every slime chunk with blocked quart cells, +1 to each center whose circle-covered
+     * portion of it is fully blocked (the same test as BiomeValidator.gridScore). masks has the
+     * bitmap's geometry; centers are chunk origins, so the portion only depends on the offset.
+     */
+    private static void biomePenalty(SlimeBitmap bm, short[] masks, int[] portions, KernelWeights kernel,
+                                     int tileW, int tileH, short[] penalty) {
+        final long[] words = bm.words();
+        final int wpr = bm.wordsPerRow();
+        final int side = 2 * CR + 1;
+
+        for (int br = 0; br < bm.height(); br++) {
+            int kz = br - CR;
+            int maskBase = br * bm.width();
+            for (int w = 0; w < wpr; w++) {
+                long word = words[br * wpr + w];
+                while (word != 0) {
+                    int col = (w << 6) + Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+
+                    int mask = masks[maskBase + col] & 0xFFFF;
+                    if (mask == 0) continue;
+                    int kx = col - CR;
 
-        return localTop;
+                    for (int dz = -CR; dz <= CR; dz++) {
+                        int r = kz - dz;
+                        if (r < 0 || r >= tileH) continue;
+
+                        int rowBase = r * tileW;
+                        int portionBase = (dz + CR) * side + CR;
+                        for (int dx = -CR; dx <= CR; dx++) {
+                            int c = kx - dx;
+                            if (c < 0 || c >= tileW) continue;
+                            if (!kernel.intersects(dx, dz)) continue;
+
+                            int portion = portions[portionBase + dx];
+                            if (portion != 0 && (mask & portion) == portion) {
+                                int idx = rowBase + c;
+                                penalty[idx] = (short)(penalty[idx] + 1);
+                            }
+                        }
+                    }
+                }
+            }
+        }
     }
 
     public static void main(String[] argv) throws Exception {
@@ -282,6 +641,14 @@ public final class SlimeFinder {
                 printUsage();
                 return;
             }
+            if (argv[0].equals("merge")) {
+                ShardMerge.run(java.util.Arrays.copyOfRange(argv, 1, argv.length));
+                return;
+            }
+            if (argv[0].equals("export")) {
+                ResultExport.run(java.util.Arrays.copyOfRange(argv, 1, argv.length));
+                return;
+            }
             args = parseArgs(argv);
         } catch (IllegalArgumentException e) {
             System.out.println("Error: " + e.getMessage());
@@ -292,9 +659,29 @@ public final class SlimeFinder {
             return;
         }
 
+        if (args.serve) {
+            runServer(args);
+            return;
+        }
+        if (args.seedSpace) {
+            RunMetrics metrics = new RunMetrics();
+            try {
+                SeedSpace.run(args, metrics);
+            } catch (IllegalArgumentException | IOException e) {
+                System.out.println("Error: " + e.getMessage());
+                System.exit(1);
+                return;
+            }
+            writeMetrics(args, metrics);
+            return;
+        }
+        if (!args.seedsFile.isBlank()) {
+            runBatch(args);
+            return;
+        }
+
         int m = args.mChunks;
         int inner = args.innerChunks;
-        final int innerFinal = inner;
         long outerCount = (long)(2 * m + 1) * (2L * m + 1);
         long innerCount = (inner > 0) ? (long)(2 * inner + 1) * (2L * inner + 1) : 0L;
         long candidates = outerCount - innerCount;
@@ -306,176 +693,324 @@ public final class SlimeFinder {
             System.out.println("Candidates: chunks in [-" + m + ", " + m + "] => " + candidates + " candidates");
         }
         System.out.println("Window: circle R=128 blocks => chunk radius cr=" + CR + " (kernel 17x17)");
-        System.out.println("Biome: " + (args.biomes ? "ON" : "OFF") + " at y=" + args.farmY + ", samples=" + args.samples + "x" + args.samples);
+        if (!args.biomes) {
+            System.out.println("Biome: OFF");
+        } else if (args.biomeSource == BiomeSource.GRID) {
+            System.out.println("Biome: ON at y=" + args.farmY + ", source=grid (4x4 quart cells per chunk)");
+        } else {
+            System.out.println("Biome: ON at y=" + args.farmY + ", source=points, samples=" + args.samples + "x" + args.samples);
+        }
         if (args.biomes) {
             String v = (args.mcVersion != null && !args.mcVersion.isBlank()) ? args.mcVersion : "(not set)";
             System.out.println("Biome backend: mc-version=" + v);
         }
         System.out.println("Threshold: " + args.threshold);
         System.out.println("Threads: " + args.threads);
+        System.out.println("Engine: " + args.engine.name().toLowerCase(java.util.Locale.ROOT));
+        int lanes = SlimeChunk.vectorLanes();
+        System.out.println("Slime rows: " + (lanes > 0 ? "vector (" + lanes + " lanes)" : "scalar (start with --add-modules jdk.incubator.vector for SIMD)"));
 
-        if (args.biomes) {
+        if (args.biomeAware) {
+            System.out.println("[INFO] Biome-aware search: fully blocked slime chunks are subtracted while counting; no separate validation pass.");
+        } else if (args.biomes) {
             System.out.println("[INFO] Fast search ignores biomes; validation happens after writing before_validation.csv.");
         }
 
-        // Phase 1 (fast search) does NOT use biomes.
+        // Phase 1 (fast search) does NOT use biomes, unless --biome-aware.
         BiomeProvider biome = new NoBiomeProvider();
         AutoCloseable biomeCloser = null;
+        BiomeContextPool biomePool = null; // per-worker cubiomes contexts for validation
+        BiomeOkFracGrid grid = null;       // set when validating from the quart grid
+        BiomeTileStore biomeStore = null;  // disk tier under the grid (--biome-store)
 
         // If we are in verification mode, we will load cubiomes later.
 
-        // --- Precompute kernel weights once ---
-        KernelWeights kernel = KernelWeights.precompute(RADIUS_BLOCKS);
+        RunMetrics metrics = new RunMetrics();
 
-        // --- No longer support --verify-biomes or --in/--out; always run fast search, write before_validation.csv, then validate if requested ---
+        // --- Kernel weights and the work-stealing pool: the search itself runs on the engine ---
+        SlimeSearchEngine engine = new SlimeSearchEngine(args.threads);
+        KernelWeights kernel = engine.kernel;
 
-        // fixed thread pool (lower overhead than per-row fork/join futures here)
-        ExecutorService exec = Executors.newFixedThreadPool(args.threads);
-
-        TopK top = new TopK(args.topk);
-
-        // Tiling parameters are internal defaults (not exposed as CLI flags).
+        // --- No longer support --verify-biomes or --in/--out; always run fast search, write before_validation.csv, then validate if requested ---
 
-        final int tileRows = Math.max(1, args.tileRows);
-        final int tileCols = Math.max(1, args.tileCols);
+        // Explicit --tile-rows/--tile-cols win; a resumed journal keeps its own tiles; anything else comes from
+        // the cache-sized default.
+        CheckpointJournal.Fingerprint prior = null;
+        if (args.resume) {
+            try {
+                prior = CheckpointJournal.readHeader(Path.of(args.checkpoint));
+            } catch (IllegalStateException e) {
+                System.out.println("Error: cannot resume: " + e.getMessage());
+                System.exit(1);
+                return;
+            }
+        }
+        TileScheduler.Size auto = (args.shardCount > 0)
+                ? TileScheduler.shardSize(2 * m + 1)
+                : TileScheduler.autoSize(2 * m + 1, args.threads, args.engine, TileScheduler.l2CacheBytes());
+        final int tileRows = (args.tileRows > 0) ? args.tileRows : (prior != null) ? prior.tileRows() : auto.rows();
+        final int tileCols = (args.tileCols > 0) ? args.tileCols : (prior != null) ? prior.tileCols() : auto.cols();
+        System.out.println("Tiles: " + tileRows + " x " + tileCols + " chunks");
+
+        // --shard: a fixed subset of the tiles, the same on every machine for the same region and tile size.
+        final List<Tile> shardTiles = (args.shardCount > 0)
+                ? TileScheduler.shardTiles(m, inner, tileRows, tileCols, args.shardIndex, args.shardCount)
+                : null;
+
+        // Tile completion journal: a resumed run starts from the journaled top-K and skips finished tiles.
+        CheckpointJournal journal = null;
+        PackedTopK priorTop = null; // rows of a resumed journal or an extended search, merged like a worker heap
+        if (!args.checkpoint.isBlank()) {
+            Path path = Path.of(args.checkpoint);
+            CheckpointJournal.Fingerprint fp = new CheckpointJournal.Fingerprint(args.seed, args.threshold, m, inner,
+                    args.topk, tileRows, tileCols, args.biomeAware,
+                    args.biomeAware ? CubiomesMcVersionMap.toCubiomesMcId(args.mcVersion) : 0, args.biomeAware ? args.farmY : 0);
+            try {
+                if (prior != null) {
+                    priorTop = new PackedTopK(args.topk);
+                    journal = CheckpointJournal.resume(path, fp, priorTop);
+                    System.out.println("Checkpoint: resuming " + path + " (" + journal.resumedTiles() + " tiles done, "
+                            + priorTop.size() + " top-K rows)");
+                } else {
+                    journal = CheckpointJournal.create(path, fp);
+                    System.out.println("Checkpoint: " + (args.resume ? "no journal yet; " : "") + "journaling finished tiles to " + path);
+                }
+            } catch (IllegalStateException e) {
+                System.out.println("Error: cannot resume: " + e.getMessage());
+                System.exit(1);
+                return;
+            }
+        }
 
-        // Build tiles for full square or ring (skipping tiles fully inside inner square).
-        List<Tile> tiles = buildTiles(m, innerFinal, tileRows, tileCols);
-        // Shuffle to improve load-balance (tiles can vary slightly in cost).
-        Collections.shuffle(tiles);
+        // --extend-from: only the centers the old search did not cover are scanned.
+        List<RegionExtension.Piece> pieces = RegionExtension.fullRegion(args);
+        RegionExtension extension = null;
+        if (!args.extendFrom.isBlank()) {
+            try {
+                extension = RegionExtension.plan(args, Path.of(args.extendFrom));
+            } catch (IllegalArgumentException | IllegalStateException | IOException e) {
+                System.out.println("Error: cannot extend: " + e.getMessage());
+                System.exit(1);
+                return;
+            }
+            pieces = extension.pieces;
+            System.out.println("Extending " + args.extendFrom + " (m=" + extension.old.mChunks() + ", inner="
+                    + extension.old.innerChunks() + "): " + extension.kept.size() + " old rows kept; scanning "
+                    + RegionExtension.centers(pieces) + " new centers");
+            priorTop = new PackedTopK(args.topk);
+            for (TopK.Item it : extension.kept) priorTop.offer(PackedTopK.key((int) it.score, it.x / 16, it.z / 16));
+        }
 
-        // Create a single bounded Args instance for this search so we don't allocate per tile.
-        final Args bounded = args;
+        // Work-stealing pool: TileScheduler splits the square recursively, idle workers steal halves.
+        ForkJoinPool exec = engine.pool;
 
-        CompletionService<TileResult> cs = new ExecutorCompletionService<>(exec);
-        for (Tile t : tiles) {
-            cs.submit(() -> new TileResult(t, processTile(t, bounded, kernel)));
+        // Optional persistent slime bits for the whole contributing rectangle [-m-CR, m+CR]^2.
+        SlimeCache slimeCache = null;
+        if (!args.slimeCache.isBlank()) {
+            int side = 2 * m + 1 + 2 * CR;
+            slimeCache = metrics.time("slime_cache", () -> SlimeCache.openOrBuild(SlimeCache.resolvePath(args.slimeCache, args.seed),
+                    args.seed, -m - CR, -m - CR, side, side, args.slimeCacheRebuild, exec));
         }
 
-        for (int i = 0; i < tiles.size(); i++) {
-            Future<TileResult> f = cs.take();
-            TileResult tr = f.get();
+        if (args.biomeAware) {
+            SlimeSearchEngine.Biomes b;
+            try {
+                b = SlimeSearchEngine.Biomes.open(args, SlimeSearchEngine.Biomes.maxTiles(args.threads, tileRows, tileCols));
+            } catch (IllegalStateException e) {
+                System.out.println("[ERROR] " + e.getMessage());
+                if (args.biomeDebug && e.getCause() != null) e.getCause().printStackTrace(System.out);
+                engine.close();
+                if (slimeCache != null) slimeCache.close();
+                return;
+            }
+            biome = b.cb;
+            biomeCloser = b.cb;
+            biomePool = b.pool;
+            biomeStore = b.store;
+            grid = b.grid;
+        }
+        // Binary output is opened up front so --dump-all can stream tiles as they finish.
+        ResultFile.Writer binOut = args.binOut.isBlank() ? null : new ResultFile.Writer(Path.of(args.binOut));
+        final SearchContext ctx = new SearchContext(args, args.seed, kernel, slimeCache, args.biomeAware ? grid : null,
+                args.dumpAll ? binOut : null);
+        final SlimeSearchEngine.Scan scan = new SlimeSearchEngine.Scan(exec, ctx, pieces, tileRows, tileCols);
+        scan.tiles = shardTiles;
+        if (priorTop != null) scan.prior(priorTop);
+        if (journal != null) {
+            // Every tile's local top-K is journaled; finished tiles of a resumed run are skipped.
+            scan.sink = journal::append;
+            scan.done = journal::isDone;
+        }
+        final long scanCenters = scan.centerCount();
+        if (shardTiles != null) {
+            System.out.println("Shard " + args.shardIndex + "/" + args.shardCount + ": " + shardTiles.size() + " tiles, "
+                    + scanCenters + " centers");
+        }
 
-            // Merge local topK into global topK.
-            for (TopK.Item it : tr.top().toSortedListDesc()) {
-                top.offer(it.x, it.z, it.score);
+        long tilesLeft = scan.tileCount() - ((journal != null) ? journal.resumedTiles() : 0);
+        long centersLeft = scanCenters - ((journal != null) ? journal.resumedCenters() : 0); // this run's share
+        final CheckpointJournal journalFinal = journal;
+        metrics.time("search", () -> {
+            ProgressMeter progress = new ProgressMeter(ctx, tilesLeft, centersLeft, args.progressInterval);
+            try {
+                scan.run();
+            } finally {
+                try {
+                    if (journalFinal != null) journalFinal.close();
+                } finally {
+                    progress.close();
+                }
             }
+        });
+        if (args.verbose) scan.printAllocations();
 
-            Tile tt = tr.tile();
-            System.out.println("Processed tile: z[" + tt.cz0() + "," + tt.cz1() + "] x[" + tt.cx0() + "," + tt.cx1() + "]");
-        }
+        if (slimeCache != null) slimeCache.close();
 
-        exec.shutdown();
+        PackedTopK top = metrics.time("topk_merge", scan::top);
+        if (args.prune) {
+            System.out.println("Pruned: " + ctx.tilesPruned.sum() + "/" + ctx.tilesDone.sum() + " tiles, "
+                    + ctx.centersPruned.sum() + "/" + centersLeft + " centers (upper bound below threshold or top-K floor)");
+        }
+        metrics.put("seed", args.seed);
+        metrics.put("m_chunks", m);
+        metrics.put("inner_chunks", inner);
+        metrics.put("threshold", args.threshold);
+        metrics.put("threads", args.threads);
+        metrics.put("engine", args.engine.name().toLowerCase(java.util.Locale.ROOT));
+        metrics.put("tile_rows", tileRows);
+        metrics.put("tile_cols", tileCols);
+        if (shardTiles != null) metrics.put("shard", args.shardIndex + "/" + args.shardCount);
+        metrics.put("tiles", ctx.tilesDone.sum());
+        metrics.put("centers", ctx.centersDone.sum());
+        metrics.put("tiles_pruned", ctx.tilesPruned.sum());
+        metrics.put("centers_pruned", ctx.centersPruned.sum());
+        if (extension != null) {
+            metrics.put("extend_rows_kept", extension.kept.size());
+            metrics.put("centers_scanned", centersLeft);
+        }
+        if (journal != null) {
+            metrics.put("checkpoint_tiles_resumed", journal.resumedTiles());
+            metrics.put("checkpoint_tiles_written", journal.appended());
+        }
 
-        // Write before_validation.csv (TopK only)
-        List<TopK.Item> out = top.toSortedListDesc();
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(args.beforePath))) {
-            bw.write("x,z,score\n");
-            for (TopK.Item it : out) {
-                bw.write(it.x + "," + it.z + "," + it.score + "\n");
-            }
+        List<TopK.Item> out = top.toItemsDesc();
+        List<TopK.Item> results = out; // what results.csv and --bin-out hold
+        if (args.biomeAware) {
+            // Scores already exclude fully blocked chunks: the top-K is the validated result.
+            metrics.put("biome_source", "grid");
+            metrics.put("grid_tiles_loaded", grid.loadedTiles());
+            metrics.put("rows_kept", out.size());
+            System.out.println("Biome-aware search (grid, " + grid.loadedTiles() + " tiles, " + biomePool.size()
+                    + " biome contexts); " + out.size() + " rows");
+        } else if (args.csv) {
+            // Write before_validation.csv (TopK only)
+            metrics.time("csv_io", () -> writeCsv(Args.BEFORE_PATH, out));
+            System.out.println("Wrote " + Args.BEFORE_PATH + " (" + out.size() + " rows)");
         }
-        System.out.println("Wrote " + args.beforePath + " (" + out.size() + " rows)");
+        if (!args.biomeAware) metrics.put("rows_before_validation", out.size());
 
         if (!args.biomes) {
-            // If not validating biomes, just copy before_validation.csv to results.csv
-            try (BufferedWriter bw = new BufferedWriter(new FileWriter(args.resultsPath))) {
-                bw.write("x,z,score\n");
-                for (TopK.Item it : out) {
-                    bw.write(it.x + "," + it.z + "," + it.score + "\n");
-                }
-            }
-            System.out.println("Skipped biome validation (--biomes not set); copied before_validation.csv to results.csv");
-        } else {
-            // Biome validation: read before_validation.csv, validate, write results.csv
-            List<CsvRow> rows = readCsvXZ(args.beforePath);
-            if (rows.isEmpty()) {
-                System.out.println("[WARN] No rows found in " + args.beforePath);
+            System.out.println("Skipped biome validation (--biomes not set); results are the fast-search top-K");
+        } else if (!args.biomeAware) {
+            // Biome validation of the in-memory top-K.
+            if (out.isEmpty()) {
+                System.out.println("[WARN] No candidates to validate");
             } else {
                 CubiomesBiomeProvider cb = null;
+                int effectiveMcId;
                 try {
-                    int effectiveMcId = CubiomesMcVersionMap.toCubiomesMcId(args.mcVersion);
-
-                    if (args.biomeDebug) {
-                        System.out.println("[biome_debug] loading cubiomes biome backend for validation...");
-                        System.out.println("[biome_debug] lib=" + args.cubiomesLib + " mc=" + effectiveMcId
-                                + (args.mcVersion != null && !args.mcVersion.isBlank() ? " (from mc-version " + args.mcVersion + ")" : ""));
-                    }
-                    cb = new CubiomesBiomeProvider(args.seed, effectiveMcId, args.cubiomesLib, (effectiveMcId >= 119) ? true : false, true);
+                    effectiveMcId = CubiomesMcVersionMap.toCubiomesMcId(args.mcVersion);
+                    cb = openCubiomes(args, effectiveMcId);
                     biome = cb;
                     biomeCloser = cb;
+                    biomePool = BiomeContextPool.cubiomes(args.seed, effectiveMcId, args.cubiomesLib, effectiveMcId >= 119, true);
                 } catch (Throwable t) {
                     System.out.println("[ERROR] Biome validation requires cubiomes backend. Failed to load.");
                     if (args.biomeDebug) t.printStackTrace(System.out);
                     if (biomeCloser != null) { try { biomeCloser.close(); } catch (Exception ignored) {} }
+                    if (binOut != null) binOut.close();
+                    engine.close();
+                    writeMetrics(args, metrics);
                     return;
                 }
 
-                final int R2 = RADIUS_BLOCKS * RADIUS_BLOCKS;
-                final int samples = Math.max(1, args.samples);
                 final int thrInt = (int)Math.ceil(args.threshold);
-                List<TopK.Item> kept = new ArrayList<>();
-
-                for (CsvRow row : rows) {
-                    int x0 = row.x;
-                    int z0 = row.z;
-                    int cX = Math.floorDiv(x0, 16);
-                    int cZ = Math.floorDiv(z0, 16);
-
-                    int count = 0;
-                    int blocked = 0;
 
-                    for (int dz = -CR; dz <= CR; dz++) {
-                        for (int dx = -CR; dx <= CR; dx++) {
-                            if (!kernel.intersects(dx, dz)) continue;
-
-                            int kx = cX + dx;
-                            int kz = cZ + dz;
-                            if (!SlimeChunk.isSlimeChunk(args.seed, kx, kz)) continue;
-                            count++;
-
-                            // subtract 1 if the circle-covered portion of this chunk is fully blocked biome
-                            if (isCirclePortionFullyBlocked(biome, x0, z0, kx, kz, dx, dz, kernel, args.farmY, samples, R2)) {
-                                blocked++;
-                            }
+                List<TopK.Item> kept;
+                RunMetrics.Phase validation = metrics.phase("biome_validation");
+                try {
+                    SlimeEvents.BiomeValidationEvent vev = new SlimeEvents.BiomeValidationEvent();
+                    vev.begin();
+
+                    if (args.biomeSource == BiomeSource.GRID) {
+                        if (cb.hasBiomeIdExports()) {
+                            biomeStore = openBiomeStore(args, args.seed, cb, effectiveMcId);
+                            grid = BiomeOkFracGrid.createCached(cb, biomePool, biomeStore, args.farmY, GRID_TILE_CHUNKS, GRID_MAX_TILES);
+                        } else {
+                            System.out.println("[WARN] " + args.cubiomesLib + " does not export biome ids; validating with --biome-source points");
                         }
                     }
 
-                    int updated = count - blocked;
-                    if (updated >= thrInt) {
-                        kept.add(new TopK.Item(x0, z0, (double)updated));
-                    }
-                }
-
-                // Sort kept descending by score and truncate to args.topk
-                kept.sort((a, b) -> Double.compare(b.score, a.score));
-                if (args.topk > 0 && kept.size() > args.topk) {
-                    kept = new ArrayList<>(kept.subList(0, args.topk));
-                }
+                    // Rows are split across the search pool; each worker gets its own native context.
+                    BiomeValidator validator = new BiomeValidator(args.seed, kernel, args.farmY, args.samples, grid);
+                    kept = validator.validate(exec, biomePool, out, thrInt);
 
-                try (BufferedWriter bw = new BufferedWriter(new FileWriter(args.resultsPath))) {
-                    bw.write("x,z,score\n");
-                    for (TopK.Item it : kept) {
-                        bw.write(it.x + "," + it.z + "," + it.score + "\n");
+                    // Sort kept descending by score and truncate to args.topk
+                    kept.sort((a, b) -> Double.compare(b.score, a.score));
+                    if (args.topk > 0 && kept.size() > args.topk) {
+                        kept = new ArrayList<>(kept.subList(0, args.topk));
                     }
+                    if (vev.shouldCommit()) {
+                        vev.rows = out.size();
+                        vev.kept = kept.size();
+                        vev.commit();
+                    }
+                } finally {
+                    validation.close();
                 }
-                System.out.println("Verified " + rows.size() + " rows; kept " + kept.size() + " -> wrote " + args.resultsPath);
+                metrics.put("rows_validated", out.size());
+                metrics.put("rows_kept", kept.size());
+                metrics.put("biome_source", (grid != null) ? "grid" : "points");
+                if (grid != null) metrics.put("grid_tiles_loaded", grid.loadedTiles());
+
+                System.out.println("Verified " + out.size() + " rows ("
+                        + ((grid != null) ? "grid, " + grid.loadedTiles() + " tiles" : "points") + ", "
+                        + biomePool.size() + " biome contexts); kept " + kept.size());
+                results = kept;
                 // Do NOT close biomeCloser here; leave open for breakdown/printing.
             }
         }
+        engine.close();
+
+        final List<TopK.Item> written = results;
+        if (args.csv) {
+            metrics.time("csv_io", () -> writeCsv(Args.RESULTS_PATH, written));
+            System.out.println("Wrote " + Args.RESULTS_PATH + " (" + results.size() + " rows)");
+        }
+        if (binOut != null) {
+            metrics.time("bin_io", () -> {
+                int scoreFlags = (args.biomes ? ResultFile.FLAG_VALIDATED : 0)
+                        | (args.biomeAware ? ResultFile.FLAG_DUMP_VALIDATED : 0);
+                if (shardTiles != null) {
+                    binOut.shard(new ResultFile.Shard(args.shardIndex, args.shardCount, tileRows, tileCols));
+                }
+                binOut.finish(args.seed, m, inner, (int) Math.ceil(args.threshold), scoreFlags, args.topk,
+                        args.biomes ? CubiomesMcVersionMap.toCubiomesMcId(args.mcVersion) : 0, args.biomes ? args.farmY : 0, written);
+                binOut.close();
+            });
+            System.out.println("Wrote " + args.binOut + " (" + results.size() + " top rows"
+                    + (args.dumpAll ? ", " + binOut.dumped() + " centers at or above the threshold" : "") + ")");
+            metrics.put("rows_dumped", binOut.dumped());
+        }
+
         // Choose what to print as "Top":
         TopK.Item bestToPrint = null;
         boolean validatedTop = false;
 
-        if (args.biomes) {
-            // After validation, results.csv contains the filtered/updated winners.
-            List<CsvRow> vrows = readCsvXZ(args.resultsPath);
-            if (!vrows.isEmpty()) {
-                CsvRow r0 = vrows.get(0);
-                double sc = (r0.score != null) ? r0.score : 0.0;
-                bestToPrint = new TopK.Item(r0.x, r0.z, sc);
-                validatedTop = true;
-            }
+        if (args.biomes && !results.isEmpty()) {
+            // After validation, results hold the filtered/updated winners.
+            bestToPrint = results.get(0);
+            validatedTop = true;
         }
 
         if (bestToPrint == null && !out.isEmpty()) {
@@ -489,15 +1024,23 @@ public final class SlimeFinder {
                 System.out.printf("Top: x=%d z=%d score=%.6f%n", bestToPrint.x, bestToPrint.z, bestToPrint.score);
             }
 
-            ChunkClassifier.Breakdown bd = ChunkClassifier.classifyForCenter(
-                    args.seed,
-                    bestToPrint.x,
-                    bestToPrint.z,
-                    CR,
-                    args.farmY,
-                    args.samples,
-                    biome
-            );
+            ChunkClassifier.Breakdown bd;
+            RunMetrics.Phase breakdown = metrics.phase("top_breakdown");
+            try {
+                bd = (grid != null)
+                        ? ChunkClassifier.classifyForCenter(args.seed, bestToPrint.x, bestToPrint.z, CR, grid)
+                        : ChunkClassifier.classifyForCenter(
+                                args.seed,
+                                bestToPrint.x,
+                                bestToPrint.z,
+                                CR,
+                                args.farmY,
+                                args.samples,
+                                biome
+                        );
+            } finally {
+                breakdown.close();
+            }
 
             System.out.println("\nChunk breakdown for Top (chunk coords):");
             System.out.println("  Full chunks, no DeepDark/Mushroom (fully biome-ok): " + bd.fullCoverFullBiome.size());
@@ -514,66 +1057,101 @@ public final class SlimeFinder {
         if (biomeCloser != null) {
             try { biomeCloser.close(); } catch (Exception ignored) {}
         }
+        if (biomePool != null) biomePool.close();
+        if (biomeStore != null) {
+            System.out.println("Biome store: " + biomeStore.hits() + " tiles read, " + biomeStore.writes() + " written");
+            metrics.put("biome_store_hits", biomeStore.hits());
+            metrics.put("biome_store_writes", biomeStore.writes());
+            biomeStore.close();
+        }
+        writeMetrics(args, metrics);
     }
 
-    private static boolean isCirclePortionFullyBlocked(
-            BiomeProvider biome,
-            int x0, int z0,
-            int chunkX, int chunkZ,
-            int dx, int dz,
-            KernelWeights kernel,
-            int farmY,
-            int samples,
-            int R2
-    ) {
-        // Chunk bounds in block coords
-        int xMin = chunkX * 16;
-        int zMin = chunkZ * 16;
-
-        // If fully covered, sample whole chunk
-        boolean full = kernel.isFull(dx, dz);
-
-        int insideSamples = 0;
-        int blockedSamples = 0;
-
-        // Sample points at cell centers within the chunk
-        // Use at least 4x4; user can raise --samples for better accuracy.
-        int s = Math.max(4, samples);
-
-        for (int iz = 0; iz < s; iz++) {
-            for (int ix = 0; ix < s; ix++) {
-                int sx = xMin + (int)((ix + 0.5) * (16.0 / s));
-                int sz = zMin + (int)((iz + 0.5) * (16.0 / s));
-
-                if (!full) {
-                    int dx0 = sx - x0;
-                    int dz0 = sz - z0;
-                    if (dx0 * dx0 + dz0 * dz0 > R2) {
-                        continue; // outside circle portion
-                    }
-                }
+    /** --seeds-file: every seed of the file through one SeedBatch. */
+    private static void runBatch(Args args) throws Exception {
+        List<Long> seeds;
+        try {
+            seeds = SeedBatch.readSeeds(args.seedsFile);
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("Error: cannot read --seeds-file: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+        if (seeds.isEmpty()) {
+            System.out.println("Error: no seeds in " + args.seedsFile);
+            System.exit(1);
+            return;
+        }
+
+        System.out.println("Seeds: " + seeds.size() + " from " + args.seedsFile);
+        System.out.println("Candidates per seed: " + ((long) (2 * args.mChunks + 1) * (2L * args.mChunks + 1)
+                - ((args.innerChunks > 0) ? (long) (2 * args.innerChunks + 1) * (2L * args.innerChunks + 1) : 0L)));
+        System.out.println("Biome: " + (args.biomes ? "ON" : "OFF") + " at y=" + args.farmY);
+        System.out.println("Threshold: " + args.threshold);
+        System.out.println("Threads: " + args.threads);
+        System.out.println("Engine: " + args.engine.name().toLowerCase(java.util.Locale.ROOT));
+
+        RunMetrics metrics = new RunMetrics();
+        SeedBatch.run(args, seeds, metrics);
+        writeMetrics(args, metrics);
+    }
+
+    /** --serve / --serve-port: load everything once, then answer requests until stdin ends or a shutdown request. */
+    private static void runServer(Args args) throws Exception {
+        PrintStream protocol = System.out;
+        if (args.servePort < 0) System.setOut(System.err); // stdout carries responses only
 
-                insideSamples++;
-                if (biome.isBlocked(sx, farmY, sz)) {
-                    blockedSamples++;
+        SlimeSearchEngine engine = new SlimeSearchEngine(args.threads);
+        SlimeSearchEngine.Biomes biomes = null;
+        try {
+            if (args.biomes) {
+                try {
+                    biomes = SlimeSearchEngine.Biomes.open(args,
+                            SlimeSearchEngine.Biomes.maxTiles(args.threads, QueryServer.BOX_TILE, QueryServer.BOX_TILE));
+                } catch (IllegalStateException e) {
+                    System.out.println("[ERROR] " + e.getMessage());
+                    if (args.biomeDebug && e.getCause() != null) e.getCause().printStackTrace(System.out);
+                    return;
                 }
             }
+            QueryServer server = new QueryServer(args, engine.kernel, engine.pool, (biomes != null) ? biomes.grid : null);
+            if (args.servePort >= 0) server.serveTcp(args.servePort);
+            else server.serveStdin(protocol);
+        } finally {
+            engine.close();
+            if (biomes != null) biomes.close();
         }
+    }
 
-        // If no samples fell inside due to coarse grid, fall back to checking chunk center if it lies inside circle
-        if (insideSamples == 0) {
-            int sx = xMin + 8;
-            int sz = zMin + 8;
-            int dx0 = sx - x0;
-            int dz0 = sz - z0;
-            if (dx0 * dx0 + dz0 * dz0 <= R2) {
-                return biome.isBlocked(sx, farmY, sz);
-            }
-            return false;
+    static CubiomesBiomeProvider openCubiomes(Args args, int effectiveMcId) {
+        if (args.biomeDebug) {
+            System.out.println("[biome_debug] loading cubiomes biome backend...");
+            System.out.println("[biome_debug] lib=" + args.cubiomesLib + " mc=" + effectiveMcId
+                    + (args.mcVersion != null && !args.mcVersion.isBlank() ? " (from mc-version " + args.mcVersion + ")" : ""));
         }
+        return new CubiomesBiomeProvider(args.seed, effectiveMcId, args.cubiomesLib, (effectiveMcId >= 119) ? true : false, true);
+    }
+
+    /** The --biome-store for this world, or null if none was asked for or it cannot be opened. */
+    static BiomeTileStore openBiomeStore(Args args, long seed, CubiomesBiomeProvider cb, int effectiveMcId) {
+        if (args.biomeStore.isBlank()) return null;
+        int yQuart = Math.floorDiv(args.farmY, 4);
+        Path path = BiomeTileStore.resolvePath(args.biomeStore, seed, effectiveMcId, yQuart, GRID_TILE_CHUNKS);
+        try {
+            return BiomeTileStore.openOrCreate(path, seed, effectiveMcId, yQuart, GRID_TILE_CHUNKS, cb,
+                    (long) args.biomeStoreMaxMb << 20);
+        } catch (IOException e) {
+            System.out.println("[WARN] Biome store " + path + " unavailable (" + e.getMessage() + "); generating all tiles");
+            return null;
+        }
+    }
 
-        return blockedSamples == insideSamples;
+    static void writeMetrics(Args args, RunMetrics metrics) throws Exception {
+        if (args.metricsOut.isBlank()) return;
+        metrics.write(args.metricsOut);
+        System.out.println("Wrote " + args.metricsOut);
     }
+
     /**
      * Convenience mapping from a user-facing Minecraft version string (e.g. 1.21.11)
      * to the Cubiomes numeric MC version id.
@@ -581,7 +1159,7 @@ public final class SlimeFinder {
      * Notes:
      * - This mapping is intentionally small and can be extended over time.
      */
-    private static final class CubiomesMcVersionMap {
+    static final class CubiomesMcVersionMap {
         private CubiomesMcVersionMap() {}
 
         static int toCubiomesMcId(String mcVersion) {
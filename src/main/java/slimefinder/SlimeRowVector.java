@@ -0,0 +1,88 @@
+package slimefinder;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector API version of {@link SlimeChunk#fillRowFromTerms}: one lane per chunk along a row.
+ *
+ * Only touched when jdk.incubator.vector is in the boot layer (see SlimeChunk.fillRowFromTerms),
+ * so the rest of the program never needs the incubator module.
+ *
+ * Per lane this does exactly what the scalar path does:
+ *   seed  = worldSeed + (int)(x*x*0x4c1906) + (int)(x*0x5ac0db) + zTerms ^ 0x3ad8025f
+ *   state = (seed ^ MULT) & MASK, then one LCG step
+ *   bits  = next(31), slime iff bits % 10 == 0
+ * with bits % 10 done as a multiply-shift (exact for bits < 2^32). Lanes that hit the
+ * nextInt rejection loop (bits >= 2147483640, ~4e-9 per chunk) are redone with the scalar test.
+ */
+final class SlimeRowVector {
+    private SlimeRowVector() {}
+
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+    private static final int L = SPECIES.length();
+
+    // Smallest next(31) value for which Random.nextInt(10) rejects and draws again.
+    private static final long REJECT_FROM = 2147483640L;
+
+    private static final long[] IOTA = new long[L];
+    static {
+        for (int i = 0; i < L; i++) IOTA[i] = i;
+    }
+
+    static int lanes() {
+        return L;
+    }
+
+    static void fillRowFromTerms(long rowSeed, long[] xTerms, int n, long[] bits, int wordOffset) {
+        int words = (n + 63) >>> 6;
+        for (int w = 0; w < words; w++) bits[wordOffset + w] = 0L;
+
+        int upper = SPECIES.loopBound(n);
+        int i = 0;
+        for (; i < upper; i += L) {
+            LongVector seed = LongVector.fromArray(SPECIES, xTerms, i).add(rowSeed);
+            long laneBits = slimeLanes(seed, rowSeed, xTerms, i);
+            bits[wordOffset + (i >>> 6)] |= laneBits << (i & 63);
+        }
+
+        for (; i < n; i++) {
+            if (SlimeChunk.isSlimeSeed(rowSeed + xTerms[i])) {
+                bits[wordOffset + (i >>> 6)] |= 1L << i;
+            }
+        }
+    }
+
+    /**
+     * Slime flags (bit per lane) for combined seeds worldSeed + xTerm + zTerm.
+     * Rejection-loop lanes are redone in scalar from xTerms[i + lane].
+     */
+    private static long slimeLanes(LongVector seed, long rowSeed, long[] xTerms, int i) {
+        LongVector state = seed
+                .lanewise(VectorOperators.XOR, 0x3ad8025fL ^ SlimeChunk.MULT)
+                .and(SlimeChunk.MASK);
+        state = state.mul(SlimeChunk.MULT).add(SlimeChunk.ADD).and(SlimeChunk.MASK);
+
+        LongVector r = state.lanewise(VectorOperators.LSHR, 48 - 31);
+        LongVector q = r.mul(0xCCCCCCCDL).lanewise(VectorOperators.LSHR, 35);
+        VectorMask<Long> slime = r.sub(q.mul(10L)).eq(0L);
+
+        long laneBits = slime.toLong();
+        VectorMask<Long> reject = r.compare(VectorOperators.GE, REJECT_FROM);
+        if (reject.anyTrue()) {
+            long rej = reject.toLong();
+            while (rej != 0) {
+                int lane = Long.numberOfTrailingZeros(rej);
+                rej &= rej - 1;
+                if (SlimeChunk.isSlimeSeed(rowSeed + xTerms[i + lane])) {
+                    laneBits |= 1L << lane;
+                } else {
+                    laneBits &= ~(1L << lane);
+                }
+            }
+        }
+        return laneBits;
+    }
+}
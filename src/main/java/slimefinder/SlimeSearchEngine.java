@@ -0,0 +1,372 @@
+package slimefinder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+
+import slimefinder.SlimeFinder.Tile;
+
+/**
+ * The fast search as a library: one engine keeps the kernel and a work-stealing pool, and every
+ * {@link #search(SearchSpec)} streams what it finds while tiles complete, so a service can embed
+ * the search instead of running the CLI and parsing its CSV.
+ *
+ * <pre>
+ * SlimeSearchEngine engine = new SlimeSearchEngine(8);
+ * engine.search(SearchSpec.of(11868470311385L, 3000).withThreshold(40)).subscribe(subscriber);
+ * </pre>
+ *
+ * A subscriber sees {@link Center}s as their tiles finish, a {@link Progress} about once a second,
+ * and finally one {@link Done} with the exact top-K before onComplete. Delivery follows the
+ * subscriber's demand: once a buffer's worth of events is waiting, tile workers block until more
+ * is requested. Cancelling the subscription stops the search after the tiles already running.
+ *
+ * The CLI runs its searches through the same {@link Scan}.
+ */
+public final class SlimeSearchEngine implements AutoCloseable {
+
+    private static final int CR = KernelWeights.CR;
+    private static final long PROGRESS_NANOS = 1_000_000_000L;
+
+    /**
+     * What to search: centers in [-mChunks,mChunks]^2 chunks outside [-innerChunks,innerChunks]^2
+     * (0 = none) scoring at least threshold, keeping the best topK. With biomeAware, slime chunks
+     * fully blocked by biomes at farmY are not counted (needs the cubiomes library, as --biome-aware).
+     */
+    public record SearchSpec(long seed, int mChunks, int innerChunks, double threshold, int topK,
+                             boolean biomeAware, String mcVersion, int farmY, String cubiomesLib, String biomeStore) {
+
+        public SearchSpec {
+            if (mChunks < 0 || mChunks >= PackedTopK.COORD_LIMIT - CR) {
+                throw new IllegalArgumentException("mChunks must be in [0, " + (PackedTopK.COORD_LIMIT - CR - 1) + "]");
+            }
+            if (innerChunks < 0 || innerChunks > mChunks) throw new IllegalArgumentException("innerChunks must be in [0, mChunks]");
+            if (topK < 1) throw new IllegalArgumentException("topK must be >= 1");
+            if (Double.isNaN(threshold)) throw new IllegalArgumentException("threshold must be a number");
+            mcVersion = Objects.requireNonNullElse(mcVersion, "");
+            cubiomesLib = Objects.requireNonNullElse(cubiomesLib, "");
+            biomeStore = Objects.requireNonNullElse(biomeStore, "");
+            if (biomeAware) SlimeFinder.CubiomesMcVersionMap.toCubiomesMcId(mcVersion);
+        }
+
+        /** The whole square [-mChunks,mChunks]^2 with the CLI defaults (threshold 6, top 50, no biomes). */
+        public static SearchSpec of(long seed, int mChunks) {
+            SlimeFinder.Args d = new SlimeFinder.Args();
+            return new SearchSpec(seed, mChunks, 0, d.threshold, d.topk, false, "", d.farmY, "", "");
+        }
+
+        public SearchSpec withInnerChunks(int innerChunks) {
+            return new SearchSpec(seed, mChunks, innerChunks, threshold, topK, biomeAware, mcVersion, farmY, cubiomesLib, biomeStore);
+        }
+
+        public SearchSpec withThreshold(double threshold) {
+            return new SearchSpec(seed, mChunks, innerChunks, threshold, topK, biomeAware, mcVersion, farmY, cubiomesLib, biomeStore);
+        }
+
+        public SearchSpec withTopK(int topK) {
+            return new SearchSpec(seed, mChunks, innerChunks, threshold, topK, biomeAware, mcVersion, farmY, cubiomesLib, biomeStore);
+        }
+
+        /** Biome-aware scores for mcVersion (e.g. 1.21.11) at farmY, from the cubiomes library at cubiomesLib ("" = default). */
+        public SearchSpec withBiomes(String mcVersion, int farmY, String cubiomesLib) {
+            return new SearchSpec(seed, mChunks, innerChunks, threshold, topK, true, mcVersion, farmY, cubiomesLib, biomeStore);
+        }
+
+        /** Keep generated biome tiles in this file or directory across searches (as --biome-store). */
+        public SearchSpec withBiomeStore(String biomeStore) {
+            return new SearchSpec(seed, mChunks, innerChunks, threshold, topK, biomeAware, mcVersion, farmY, cubiomesLib, biomeStore);
+        }
+
+        SlimeFinder.Args toArgs(int threads) {
+            SlimeFinder.Args a = new SlimeFinder.Args();
+            a.seed = seed;
+            a.mChunks = mChunks;
+            a.innerChunks = innerChunks;
+            a.threshold = threshold;
+            a.topk = topK;
+            a.biomes = biomeAware;
+            a.biomeAware = biomeAware;
+            a.mcVersion = mcVersion;
+            a.farmY = farmY;
+            a.cubiomesLib = cubiomesLib;
+            a.biomeStore = biomeStore;
+            a.threads = threads;
+            a.progressInterval = 0;
+            return a;
+        }
+    }
+
+    /** Everything a search publishes. */
+    public sealed interface Event permits Center, Progress, Done {}
+
+    /**
+     * A center (chunk origin in blocks, as in results.csv) that was in the running top-K when its
+     * tile finished. Later tiles may push it out again; {@link Done} holds the final list.
+     */
+    public record Center(int x, int z, int score) implements Event {}
+
+    /** Finished tiles and the centers they covered, out of the whole search. */
+    public record Progress(long tilesDone, long tiles, long centersDone, long centers) implements Event {}
+
+    /** The last event: the top-K best first, and how many centers the upper bounds skipped. */
+    public record Done(List<Center> top, long centersPruned) implements Event {}
+
+    private final int threads;
+    final KernelWeights kernel;
+    final ForkJoinPool pool;
+
+    /** An engine searching on {@code threads} worker threads. */
+    public SlimeSearchEngine(int threads) {
+        if (threads < 1) throw new IllegalArgumentException("threads must be >= 1");
+        this.threads = threads;
+        this.kernel = KernelWeights.precompute(KernelWeights.RADIUS_BLOCKS);
+        this.pool = new ForkJoinPool(threads);
+    }
+
+    /** An engine using every available processor. */
+    public SlimeSearchEngine() {
+        this(Math.max(1, Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * A cold publisher: every subscription runs its own search of {@code spec} on this engine's
+     * pool. Failures (e.g. a missing cubiomes library) arrive as onError.
+     */
+    public Flow.Publisher<Event> search(SearchSpec spec) {
+        Objects.requireNonNull(spec, "spec");
+        return subscriber -> {
+            SubmissionPublisher<Event> out = new SubmissionPublisher<>();
+            out.subscribe(subscriber);
+            Thread t = new Thread(() -> publish(spec, out), "slimefinder-search");
+            t.setDaemon(true);
+            t.start();
+        };
+    }
+
+    private void publish(SearchSpec spec, SubmissionPublisher<Event> out) {
+        SlimeFinder.Args args = spec.toArgs(threads);
+        TileScheduler.Size size = TileScheduler.autoSize(2 * spec.mChunks() + 1, threads, args.engine, TileScheduler.l2CacheBytes());
+        try (Biomes biomes = spec.biomeAware() ? Biomes.open(args, Biomes.maxTiles(threads, size.rows(), size.cols())) : null) {
+            if (pool.isShutdown()) throw new IllegalStateException("the engine is closed");
+            SearchContext ctx = new SearchContext(args, spec.seed(), kernel, null, (biomes != null) ? biomes.grid : null, null);
+            Scan scan = new Scan(pool, ctx, RegionExtension.fullRegion(args), size.rows(), size.cols());
+            long tiles = scan.tileCount();
+            long centers = scan.centerCount();
+            AtomicLong nextProgress = new AtomicLong(System.nanoTime() + PROGRESS_NANOS);
+
+            scan.cancelled = () -> !out.hasSubscribers();
+            scan.sink = (t, local, floorKey) -> {
+                for (long key : local.toSortedDesc()) {
+                    if (key < floorKey) break;
+                    out.submit(center(key));
+                }
+                long now = System.nanoTime();
+                long due = nextProgress.get();
+                if (now >= due && nextProgress.compareAndSet(due, now + PROGRESS_NANOS)) {
+                    out.submit(new Progress(ctx.tilesDone.sum(), tiles, ctx.centersDone.sum(), centers));
+                }
+            };
+            scan.run();
+            if (!out.hasSubscribers()) return; // cancelled
+
+            List<Center> top = new ArrayList<>();
+            for (long key : scan.top().toSortedDesc()) top.add(center(key));
+            out.submit(new Progress(ctx.tilesDone.sum(), tiles, ctx.centersDone.sum(), centers));
+            out.submit(new Done(Collections.unmodifiableList(top), ctx.centersPruned.sum()));
+            out.close();
+        } catch (Throwable e) {
+            out.closeExceptionally(e);
+        }
+    }
+
+    private static Center center(long key) {
+        return new Center(16 * PackedTopK.cx(key), 16 * PackedTopK.cz(key), PackedTopK.score(key));
+    }
+
+    /** Stops the worker pool; searches still running finish their current tiles first. */
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    /** Receives every finished tile's own top-K and the search-wide floor key at that moment. */
+    interface TileSink {
+        void tileDone(Tile t, PackedTopK local, long floorKey);
+    }
+
+    /**
+     * One fast search over the tiles of some region pieces (or a fixed tile list): every worker
+     * keeps one heap for the whole search, and they are tree-reduced at the end. The shared floor
+     * lets workers drop centers that can no longer reach the global top-K.
+     */
+    static final class Scan {
+        private final ForkJoinPool exec;
+        private final SearchContext ctx;
+        private final List<RegionExtension.Piece> pieces;
+        private final int tileRows;
+        private final int tileCols;
+
+        List<Tile> tiles;                        // scan exactly these (--shard) instead of the pieces' grids
+        Predicate<Tile> done = t -> false;       // tiles finished by an earlier run (--resume)
+        TileSink sink;                           // sees each tile's own top-K first (journal, subscriber)
+        BooleanSupplier cancelled = () -> false; // checked before every tile
+
+        private final List<PackedTopK> workerHeaps = Collections.synchronizedList(new ArrayList<>());
+        private final LongAdder allocTotal = new LongAdder();
+        private final AtomicLong allocSteadyMax = new AtomicLong();
+        private final AtomicInteger allocGrowTiles = new AtomicInteger();
+
+        Scan(ForkJoinPool exec, SearchContext ctx, List<RegionExtension.Piece> pieces, int tileRows, int tileCols) {
+            this.exec = exec;
+            this.ctx = ctx;
+            this.pieces = pieces;
+            this.tileRows = tileRows;
+            this.tileCols = tileCols;
+        }
+
+        /** Rows found before (a resumed journal, an extended search), merged like a worker heap. */
+        void prior(PackedTopK top) {
+            workerHeaps.add(top);
+            if (top.isFull()) ctx.floor.accumulateAndGet(top.floorKey(), Math::max);
+        }
+
+        long tileCount() {
+            if (tiles != null) return tiles.size();
+            long n = 0;
+            for (RegionExtension.Piece pc : pieces) n += TileScheduler.buildTiles(pc.outer(), pc.inner(), tileRows, tileCols).size();
+            return n;
+        }
+
+        long centerCount() {
+            if (tiles == null) return RegionExtension.centers(pieces);
+            long n = 0;
+            for (Tile t : tiles) n += (long) (t.cz1() - t.cz0() + 1) * (t.cx1() - t.cx0() + 1);
+            return n;
+        }
+
+        /** Processes every tile (skipping done ones) and waits for all of them. */
+        void run() {
+            final int k = ctx.args.topk;
+            final ThreadLocal<PackedTopK> workerHeap = ThreadLocal.withInitial(() -> {
+                PackedTopK h = new PackedTopK(k);
+                workerHeaps.add(h);
+                return h;
+            });
+            // With a sink every tile gets its own heap first, so its local top-K can be handed over.
+            final TileSink s = sink;
+            final ThreadLocal<PackedTopK> tileHeap = ThreadLocal.withInitial(() -> new PackedTopK(k));
+            final TileScheduler.TileWork search = (s == null)
+                    ? t -> SlimeFinder.processTile(t, ctx, workerHeap.get())
+                    : t -> {
+                        PackedTopK local = tileHeap.get();
+                        local.clear();
+                        SlimeFinder.processTile(t, ctx, local);
+                        s.tileDone(t, local, ctx.floor.get());
+                        PackedTopK heap = workerHeap.get().mergeFrom(local);
+                        if (heap.isFull()) ctx.floor.accumulateAndGet(heap.floorKey(), Math::max);
+                    };
+
+            final boolean verbose = ctx.args.verbose;
+            final TileScheduler.TileWork work = t -> {
+                if (cancelled.getAsBoolean() || done.test(t)) return;
+                if (!verbose) {
+                    search.process(t);
+                    return;
+                }
+                long a0 = allocatedBytes();
+                search.process(t);
+                long allocated = allocatedBytes() - a0;
+
+                System.out.println("Processed tile: z[" + t.cz0() + "," + t.cz1() + "] x[" + t.cx0() + "," + t.cx1() + "]"
+                        + " allocated=" + allocated + " B");
+                allocTotal.add(allocated);
+                // Anything big is a scratch buffer growing to a larger tile; the rest is steady state.
+                if (allocated > 64 * 1024) allocGrowTiles.incrementAndGet();
+                else allocSteadyMax.accumulateAndGet(allocated, Math::max);
+            };
+            if (tiles != null) TileScheduler.run(exec, tiles, work);
+            else for (RegionExtension.Piece pc : pieces) TileScheduler.run(exec, pc.outer(), pc.inner(), tileRows, tileCols, work);
+        }
+
+        /** The merged top-K of all worker heaps (and prior rows). */
+        PackedTopK top() {
+            return PackedTopK.reduce(workerHeaps, ctx.args.topk);
+        }
+
+        /** --verbose: scratch allocations per tile. */
+        void printAllocations() {
+            System.out.println("Tile allocations: total=" + allocTotal.sum() + " B over " + ctx.tilesDone.sum() + " tiles; "
+                    + allocGrowTiles.get() + " tiles grew scratch buffers; steady-state max=" + allocSteadyMax.get() + " B/tile");
+        }
+
+        /** Bytes allocated so far by the calling thread, or 0 if the JVM cannot tell. */
+        private static long allocatedBytes() {
+            java.lang.management.ThreadMXBean mx = java.lang.management.ManagementFactory.getThreadMXBean();
+            if (mx instanceof com.sun.management.ThreadMXBean smx && smx.isThreadAllocatedMemorySupported()) {
+                return smx.getCurrentThreadAllocatedBytes();
+            }
+            return 0L;
+        }
+    }
+
+    /** The cubiomes backend, its per-worker contexts and the cached biome grid of a biome-aware search. */
+    static final class Biomes implements AutoCloseable {
+        final CubiomesBiomeProvider cb;
+        final BiomeContextPool pool;
+        final BiomeTileStore store; // may be null
+        final BiomeOkFracGrid grid;
+
+        private Biomes(CubiomesBiomeProvider cb, BiomeContextPool pool, BiomeTileStore store, BiomeOkFracGrid grid) {
+            this.cb = cb;
+            this.pool = pool;
+            this.store = store;
+            this.grid = grid;
+        }
+
+        /** Grid tiles to keep: every worker's tile plus halo, twice over, so neighbouring tiles still hit. */
+        static int maxTiles(int threads, int tileRows, int tileCols) {
+            int g = SlimeFinder.GRID_TILE_CHUNKS;
+            long perTile = (long) ((tileRows + 2 * CR) / g + 2) * ((tileCols + 2 * CR) / g + 2);
+            return (int) Math.min(Integer.MAX_VALUE, Math.max(SlimeFinder.GRID_MAX_TILES, 2L * threads * perTile));
+        }
+
+        /** Loads cubiomes for args.seed; throws IllegalStateException if it cannot provide the grid. */
+        static Biomes open(SlimeFinder.Args args, int maxTiles) {
+            int effectiveMcId = SlimeFinder.CubiomesMcVersionMap.toCubiomesMcId(args.mcVersion);
+            CubiomesBiomeProvider cb = null;
+            BiomeContextPool pool;
+            try {
+                cb = SlimeFinder.openCubiomes(args, effectiveMcId);
+                pool = BiomeContextPool.cubiomes(args.seed, effectiveMcId, args.cubiomesLib, effectiveMcId >= 119, true);
+            } catch (Throwable t) {
+                if (cb != null) cb.close();
+                throw new IllegalStateException("Biome-aware scores require the cubiomes backend, which failed to load", t);
+            }
+            if (!cb.hasBiomeIdExports()) {
+                pool.close();
+                cb.close();
+                throw new IllegalStateException(args.cubiomesLib + " does not export biome ids; biome-aware scores need the grid (rebuild the library)");
+            }
+            BiomeTileStore store = SlimeFinder.openBiomeStore(args, args.seed, cb, effectiveMcId);
+            BiomeOkFracGrid grid = BiomeOkFracGrid.createCached(cb, pool, store, args.farmY, SlimeFinder.GRID_TILE_CHUNKS, maxTiles);
+            return new Biomes(cb, pool, store, grid);
+        }
+
+        @Override
+        public void close() throws IOException {
+            pool.close();
+            cb.close();
+            if (store != null) store.close();
+        }
+    }
+}
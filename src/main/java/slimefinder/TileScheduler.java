@@ -0,0 +1,242 @@
+package slimefinder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+import slimefinder.SlimeFinder.Tile;
+
+/**
+ * Work-stealing tile scheduler.
+ *
+ * The search square is cut into a grid of tileRows x tileCols cells. A RecursiveAction halves the
+ * cell range along its longer side until a single cell is left, so idle workers steal the largest
+ * pending halves first and the run ends without a tail of stragglers.
+ *
+ * Ring searches clip every cell against the inner square: a cell straddling it becomes up to four
+ * rectangles outside it (see cellTiles), so boundary tiles never count centers that are discarded.
+ */
+final class TileScheduler {
+
+    private TileScheduler() {}
+
+    /** Runs on a worker thread for every tile. */
+    interface TileWork {
+        void process(Tile t);
+    }
+
+    /** Tile dimensions in centers (chunks). */
+    record Size(int rows, int cols) {}
+
+    // Halo columns/rows every tile generates around its centers (CR on each side).
+    private static final int HALO = 2 * KernelWeights.CR;
+    private static final int MIN_SIDE = 64;
+    private static final int MAX_SIDE = 4096;
+    private static final int TILES_PER_THREAD = 8;
+    private static final long DEFAULT_L2 = 1L << 20;
+
+    /**
+     * Picks a tile size for a square of side centers.
+     *
+     * A tile's scratch (bitmap, stripe, block bounds) should fit in half the L2 cache, and the tiles
+     * should be close to square so the CR halo stays a small share of the slime bits generated.
+     * Tiles are then shrunk until every thread has TILES_PER_THREAD of them to steal from.
+     */
+    static Size autoSize(int side, int threads, CountEngine engine, long cacheBytes) {
+        // Bytes of scratch per center: bitmap bit, block bound share, and the 16-bit stripe if any.
+        double perCenter = 1.0 / 8 + 4.0 / (BlockBound.BLOCK * BlockBound.BLOCK)
+                + (engine == CountEngine.BITS ? 0 : 2);
+        double area = Math.max((double) MIN_SIDE * MIN_SIDE, (cacheBytes / 2) / perCenter);
+
+        int cols = clamp(roundUp64((int) Math.sqrt(area)), MIN_SIDE, MAX_SIDE);
+        int rows = clamp((int) (area / cols) - HALO, MIN_SIDE, MAX_SIDE);
+        cols = Math.min(cols, side);
+        rows = Math.min(rows, side);
+
+        long want = (long) TILES_PER_THREAD * Math.max(1, threads);
+        while (cells(side, rows, cols) < want && (rows > MIN_SIDE || cols > MIN_SIDE)) {
+            if (rows >= cols && rows > MIN_SIDE) rows = Math.max(MIN_SIDE, rows / 2);
+            else cols = Math.max(MIN_SIDE, roundUp64(cols / 2));
+        }
+        return new Size(Math.max(1, rows), Math.max(1, cols));
+    }
+
+    /**
+     * Tile size for --shard runs: every shard must cut the square into the same tiles, so this only
+     * depends on the square (not on the machine's threads, cache or engine).
+     */
+    static Size shardSize(int side) {
+        return autoSize(side, 1, CountEngine.SCATTER, DEFAULT_L2);
+    }
+
+    /** Size of the per-core unified L2 cache from sysfs, or 1 MiB if unknown (e.g. not Linux). */
+    static long l2CacheBytes() {
+        try {
+            Path dir = Path.of("/sys/devices/system/cpu/cpu0/cache");
+            if (!Files.isDirectory(dir)) return DEFAULT_L2;
+            for (int i = 0; i < 8; i++) {
+                Path idx = dir.resolve("index" + i);
+                if (!Files.isDirectory(idx)) break;
+                if (!Files.readString(idx.resolve("level")).trim().equals("2")) continue;
+                if (Files.readString(idx.resolve("type")).trim().equals("Instruction")) continue;
+                return parseSize(Files.readString(idx.resolve("size")).trim());
+            }
+        } catch (Exception ignored) {
+            // fall through to the default
+        }
+        return DEFAULT_L2;
+    }
+
+    private static long parseSize(String s) {
+        long mult = 1;
+        char last = Character.toUpperCase(s.charAt(s.length() - 1));
+        if (last == 'K') mult = 1L << 10;
+        else if (last == 'M') mult = 1L << 20;
+        if (mult != 1) s = s.substring(0, s.length() - 1);
+        return Long.parseLong(s) * mult;
+    }
+
+    /** All tiles of the grid over [-m,m]^2 in row-major cell order, ring-clipped; same tiles run() visits. */
+    static List<Tile> buildTiles(int m, int inner, int tileRows, int tileCols) {
+        List<Tile> tiles = new ArrayList<>();
+        for (int cz0 = -m; cz0 <= m; cz0 += tileRows) {
+            int cz1 = Math.min(m, cz0 + tileRows - 1);
+            for (int cx0 = -m; cx0 <= m; cx0 += tileCols) {
+                int cx1 = Math.min(m, cx0 + tileCols - 1);
+                cellTiles(cz0, cz1, cx0, cx1, inner, tiles::add);
+            }
+        }
+        return tiles;
+    }
+
+    /** Shard {@code index} of {@code count}: every count-th tile of buildTiles, starting at index. */
+    static List<Tile> shardTiles(int m, int inner, int tileRows, int tileCols, int index, int count) {
+        List<Tile> all = buildTiles(m, inner, tileRows, tileCols);
+        List<Tile> mine = new ArrayList<>((all.size() + count - 1) / count);
+        for (int i = index; i < all.size(); i += count) mine.add(all.get(i));
+        return mine;
+    }
+
+    /** Processes a fixed list of tiles on the pool (halving the list like Split) and waits for all of them. */
+    static void run(ForkJoinPool pool, List<Tile> tiles, TileWork work) {
+        pool.invoke(new ListSplit(tiles, work, 0, tiles.size()));
+    }
+
+    /** Processes every tile of the grid over [-m,m]^2 on the pool and waits for all of them. */
+    static void run(ForkJoinPool pool, int m, int inner, int tileRows, int tileCols, TileWork work) {
+        pool.invoke(task(m, inner, tileRows, tileCols, work));
+    }
+
+    /** The same work as one task, for callers that run several searches side by side on one pool. */
+    static RecursiveAction task(int m, int inner, int tileRows, int tileCols, TileWork work) {
+        int side = 2 * m + 1;
+        int nz = (side + tileRows - 1) / tileRows;
+        int nx = (side + tileCols - 1) / tileCols;
+        return new Split(m, inner, tileRows, tileCols, work, 0, nz, 0, nx);
+    }
+
+    /**
+     * The parts of cell [cz0,cz1] x [cx0,cx1] outside the inner square: the whole cell, nothing,
+     * or up to four pieces (bands above/below, then left/right of the inner square).
+     */
+    static void cellTiles(int cz0, int cz1, int cx0, int cx1, int inner, Consumer<Tile> out) {
+        if (inner <= 0 || cz1 < -inner || cz0 > inner || cx1 < -inner || cx0 > inner) {
+            out.accept(new Tile(cz0, cz1, cx0, cx1));
+            return;
+        }
+        if (cz0 < -inner) out.accept(new Tile(cz0, -inner - 1, cx0, cx1));
+        int mz0 = Math.max(cz0, -inner);
+        int mz1 = Math.min(cz1, inner);
+        if (cx0 < -inner) out.accept(new Tile(mz0, mz1, cx0, -inner - 1));
+        if (cx1 > inner) out.accept(new Tile(mz0, mz1, inner + 1, cx1));
+        if (cz1 > inner) out.accept(new Tile(inner + 1, cz1, cx0, cx1));
+    }
+
+    private static long cells(int side, int rows, int cols) {
+        return (long) ((side + rows - 1) / rows) * ((side + cols - 1) / cols);
+    }
+
+    private static int roundUp64(int v) {
+        return (v + 63) & ~63;
+    }
+
+    private static int clamp(int v, int lo, int hi) {
+        return Math.max(lo, Math.min(hi, v));
+    }
+
+    /** Tiles [lo, hi) of a list; splits until one tile is left. */
+    private static final class ListSplit extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Tile> tiles;
+        private final TileWork work;
+        private final int lo, hi;
+
+        ListSplit(List<Tile> tiles, TileWork work, int lo, int hi) {
+            this.tiles = tiles;
+            this.work = work;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo <= 1) {
+                if (hi > lo) work.process(tiles.get(lo));
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new ListSplit(tiles, work, lo, mid), new ListSplit(tiles, work, mid, hi));
+        }
+    }
+
+    /** Cell range [gz0,gz1) x [gx0,gx1) of the grid; splits until one cell is left. */
+    private static final class Split extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int m, inner, tileRows, tileCols;
+        private final TileWork work;
+        private final int gz0, gz1, gx0, gx1;
+
+        Split(int m, int inner, int tileRows, int tileCols, TileWork work, int gz0, int gz1, int gx0, int gx1) {
+            this.m = m;
+            this.inner = inner;
+            this.tileRows = tileRows;
+            this.tileCols = tileCols;
+            this.work = work;
+            this.gz0 = gz0;
+            this.gz1 = gz1;
+            this.gx0 = gx0;
+            this.gx1 = gx1;
+        }
+
+        @Override
+        protected void compute() {
+            int cz0 = -m + gz0 * tileRows;
+            int cz1 = Math.min(m, -m + gz1 * tileRows - 1);
+            int cx0 = -m + gx0 * tileCols;
+            int cx1 = Math.min(m, -m + gx1 * tileCols - 1);
+
+            // Ring search: a range entirely inside the inner square has nothing to score.
+            if (inner > 0 && cz0 >= -inner && cz1 <= inner && cx0 >= -inner && cx1 <= inner) return;
+
+            int nz = gz1 - gz0;
+            int nx = gx1 - gx0;
+            if (nz == 1 && nx == 1) {
+                cellTiles(cz0, cz1, cx0, cx1, inner, work::process);
+            } else if (nz >= nx) {
+                int mid = gz0 + nz / 2;
+                invokeAll(new Split(m, inner, tileRows, tileCols, work, gz0, mid, gx0, gx1),
+                        new Split(m, inner, tileRows, tileCols, work, mid, gz1, gx0, gx1));
+            } else {
+                int mid = gx0 + nx / 2;
+                invokeAll(new Split(m, inner, tileRows, tileCols, work, gz0, gz1, gx0, mid),
+                        new Split(m, inner, tileRows, tileCols, work, gz0, gz1, mid, gx1));
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package slimefinder;
+
+/**
+ * Per-worker-thread buffers for processTile: slime bitmap, count stripe, block bounds, biome masks
+ * and engine state.
+ * Everything is grown on demand and reused from tile to tile, so once a thread has
+ * seen its largest tile it stops allocating large arrays.
+ */
+final class TileScratch {
+
+    private static final ThreadLocal<TileScratch> LOCAL = new ThreadLocal<>();
+
+    final KernelWeights kernel;
+    final SlimeBitmap bitmap = new SlimeBitmap();
+    final SpanCounter span;
+    final BitCounter bits;
+    final BlockBound blockBound;
+    final ResultFile.TileDump dump = new ResultFile.TileDump();
+
+    private short[] stripe = new short[0];
+    private int[] bounds = new int[0];
+    private short[] masks = new short[0];
+    private short[] penalty = new short[0];
+
+    TileScratch(KernelWeights kernel) {
+        this.kernel = kernel;
+        this.span = new SpanCounter(kernel);
+        this.bits = new BitCounter(kernel);
+        this.blockBound = new BlockBound(kernel);
+    }
+
+    /** The calling thread's scratch for this kernel (created on first use). */
+    static TileScratch forThread(KernelWeights kernel) {
+        TileScratch s = LOCAL.get();
+        if (s == null || s.kernel != kernel) {
+            s = new TileScratch(kernel);
+            LOCAL.set(s);
+        }
+        return s;
+    }
+
+    /** Stripe of at least n counts; the first n are zeroed only if {@code clear} is set. */
+    short[] stripe(int n, boolean clear) {
+        if (stripe.length < n) {
+            stripe = new short[n];
+        } else if (clear) {
+            java.util.Arrays.fill(stripe, 0, n, (short) 0);
+        }
+        return stripe;
+    }
+
+    /** Per-block upper bounds buffer of at least n entries (contents undefined). */
+    int[] bounds(int n) {
+        if (bounds.length < n) bounds = new int[n];
+        return bounds;
+    }
+
+    /** Biome quart masks buffer of at least n entries (contents undefined). */
+    short[] masks(int n) {
+        if (masks.length < n) masks = new short[n];
+        return masks;
+    }
+
+    /** Biome penalty counts, first n zeroed. */
+    short[] penalty(int n) {
+        if (penalty.length < n) {
+            penalty = new short[n];
+        } else {
+            java.util.Arrays.fill(penalty, 0, n, (short) 0);
+        }
+        return penalty;
+    }
+}
@@ -0,0 +1,106 @@
+package slimefinder;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import slimefinder.SlimeFinder.Tile;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CheckpointJournalTest {
+
+    private static final CheckpointJournal.Fingerprint FP =
+            new CheckpointJournal.Fingerprint(42L, 38.0, 3000, 0, 4, 512, 1024, false, 0, 0);
+    private static final Tile A = new Tile(0, 9, 0, 19);
+    private static final Tile B = new Tile(10, 19, 0, 19);
+    private static final Tile C = new Tile(20, 29, 0, 19);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void resumeRebuildsTilesAndTopK() throws IOException {
+        Path p = dir.resolve("ckpt");
+        try (CheckpointJournal j = CheckpointJournal.create(p, FP)) {
+            j.append(A, heap(40, 41, 45), Long.MIN_VALUE);
+            // Keys below the floor cannot reach the final top-K and are left out of the record.
+            j.append(B, heap(39, 44, 50), PackedTopK.key(41, 0, 0));
+            assertEquals(2, j.appended());
+        }
+        assertEquals(FP, CheckpointJournal.readHeader(p));
+
+        PackedTopK top = new PackedTopK(FP.topk());
+        try (CheckpointJournal j = CheckpointJournal.resume(p, FP, top)) {
+            assertEquals(2, j.resumedTiles());
+            assertEquals(400, j.resumedCenters());
+            assertTrue(j.isDone(A));
+            assertTrue(j.isDone(B));
+            assertFalse(j.isDone(C));
+            j.append(C, heap(47), Long.MIN_VALUE);
+        }
+        assertArrayEquals(new long[] {key(50), key(45), key(44), key(41)}, top.toSortedDesc());
+
+        try (CheckpointJournal j = CheckpointJournal.resume(p, FP, new PackedTopK(FP.topk()))) {
+            assertEquals(3, j.resumedTiles());
+        }
+    }
+
+    @Test
+    void cutRecordIsDropped() throws IOException {
+        Path p = dir.resolve("ckpt");
+        try (CheckpointJournal j = CheckpointJournal.create(p, FP)) {
+            j.append(A, heap(40), Long.MIN_VALUE);
+            j.append(B, heap(41, 42), Long.MIN_VALUE);
+        }
+        long size = Files.size(p);
+        try (FileChannel ch = FileChannel.open(p, StandardOpenOption.WRITE)) {
+            ch.truncate(size - 3); // a kill in the middle of the last record
+        }
+
+        PackedTopK top = new PackedTopK(FP.topk());
+        try (CheckpointJournal j = CheckpointJournal.resume(p, FP, top)) {
+            assertEquals(1, j.resumedTiles());
+            assertFalse(j.isDone(B));
+        }
+        assertArrayEquals(new long[] {key(40)}, top.toSortedDesc());
+        assertEquals(64 + 20 + 8 + 4, Files.size(p));
+    }
+
+    @Test
+    void otherSearchIsRejected() throws IOException {
+        Path p = dir.resolve("ckpt");
+        assertNull(CheckpointJournal.readHeader(p));
+        CheckpointJournal.create(p, FP).close();
+
+        CheckpointJournal.Fingerprint other =
+                new CheckpointJournal.Fingerprint(42L, 38.0, 3000, 0, 4, 256, 1024, false, 0, 0);
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> CheckpointJournal.resume(p, other, new PackedTopK(FP.topk())));
+        assertTrue(e.getMessage().contains("tiles 512 x 1024"), e.getMessage());
+
+        Files.write(p, new byte[] {1, 2, 3});
+        assertThrows(IllegalStateException.class, () -> CheckpointJournal.readHeader(p));
+    }
+
+    /** A tile heap holding the given scores. */
+    private static PackedTopK heap(int... scores) {
+        PackedTopK local = new PackedTopK(FP.topk());
+        for (int s : scores) local.offer(key(s));
+        return local;
+    }
+
+    private static long key(int score) {
+        return PackedTopK.key(score, score, -score);
+    }
+}
@@ -0,0 +1,88 @@
+package slimefinder;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Every counting engine, with pruning on and off, must keep exactly the top-K a brute-force count
+ * over the kernel keeps; the row fill must match the scalar per-chunk slime test.
+ */
+class EngineEquivalenceTest {
+
+    private static final long SEED = 11868470311385L;
+    private static final int CR = KernelWeights.CR;
+    private static final KernelWeights KERNEL = KernelWeights.precompute(KernelWeights.RADIUS_BLOCKS);
+    // Off the origin, with a width that is not a multiple of 64 or of BlockBound.BLOCK.
+    private static final SlimeFinder.Tile TILE = new SlimeFinder.Tile(1_000, 1_095, -2_000, -1_843);
+    private static final double THRESHOLD = 30;
+    private static final int TOPK = 50;
+
+    @Test
+    void enginesMatchBruteForce() {
+        long[] want = bruteForce().toSortedDesc();
+        assertEquals(TOPK, want.length, "tile too sparse for the threshold");
+
+        for (CountEngine engine : CountEngine.values()) {
+            for (boolean prune : new boolean[] {true, false}) {
+                assertArrayEquals(want, search(engine, prune).toSortedDesc(), engine + " prune=" + prune);
+            }
+        }
+    }
+
+    @Test
+    void rowFillMatchesScalar() {
+        for (int n : new int[] {1, 63, 64, 65, 200}) {
+            int cx0 = -1_234;
+            long[] terms = new long[n];
+            SlimeChunk.fillXTerms(cx0, n, terms);
+            int words = (n + 63) >>> 6;
+            for (int cz = -3; cz <= 3; cz++) {
+                long[] want = new long[words];
+                SlimeChunk.fillRowScalar(SEED, cz, cx0, cx0 + n - 1, want);
+
+                long rowSeed = SEED + SlimeChunk.zTerm(cz);
+                long[] got = new long[words + 1];
+                SlimeChunk.fillRowFromTerms(rowSeed, terms, n, got, 1);
+                assertArrayEquals(want, java.util.Arrays.copyOfRange(got, 1, words + 1), "n=" + n + " cz=" + cz);
+
+                // The vector kernel directly, when the module is present (the build runs tests with it).
+                if (SlimeChunk.vectorLanes() > 0) {
+                    long[] vec = new long[words];
+                    SlimeRowVector.fillRowFromTerms(rowSeed, terms, n, vec, 0);
+                    assertArrayEquals(want, vec, "vector n=" + n + " cz=" + cz);
+                }
+            }
+        }
+    }
+
+    private static PackedTopK search(CountEngine engine, boolean prune) {
+        SlimeFinder.Args args = new SlimeFinder.Args();
+        args.seed = SEED;
+        args.threshold = THRESHOLD;
+        args.topk = TOPK;
+        args.engine = engine;
+        args.prune = prune;
+        PackedTopK top = new PackedTopK(TOPK);
+        SlimeFinder.processTile(TILE, new SearchContext(args, KERNEL, null), top);
+        return top;
+    }
+
+    /** Score of a center = slime chunks the circle touches. */
+    private static PackedTopK bruteForce() {
+        PackedTopK top = new PackedTopK(TOPK);
+        for (int cz = TILE.cz0(); cz <= TILE.cz1(); cz++) {
+            for (int cx = TILE.cx0(); cx <= TILE.cx1(); cx++) {
+                int s = 0;
+                for (int dz = -CR; dz <= CR; dz++) {
+                    for (int dx = -CR; dx <= CR; dx++) {
+                        if (KERNEL.intersects(dx, dz) && SlimeChunk.isSlimeChunk(SEED, cx + dx, cz + dz)) s++;
+                    }
+                }
+                if (s >= THRESHOLD) top.offer(PackedTopK.key(s, cx, cz));
+            }
+        }
+        return top;
+    }
+}
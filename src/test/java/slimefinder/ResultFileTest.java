@@ -0,0 +1,131 @@
+package slimefinder;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResultFileTest {
+
+    private static final KernelWeights KERNEL = KernelWeights.precompute(KernelWeights.RADIUS_BLOCKS);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void headerTopAndShardRoundTrip() throws IOException {
+        Path p = dir.resolve("r.bin");
+        List<TopK.Item> top = List.of(new TopK.Item(-160, 320, 44), new TopK.Item(16, -16, 41));
+        try (ResultFile.Writer w = new ResultFile.Writer(p)) {
+            w.shard(new ResultFile.Shard(2, 5, 512, 1024));
+            w.finish(-7L, 3000, 100, 38, ResultFile.FLAG_VALIDATED, 50, 21, -64, top);
+        }
+
+        ResultFile.Contents c = ResultFile.read(p);
+        assertEquals(-7L, c.seed());
+        assertEquals(3000, c.mChunks());
+        assertEquals(100, c.innerChunks());
+        assertEquals(38, c.scoreBase());
+        assertEquals(ResultFile.FLAG_VALIDATED | ResultFile.FLAG_PARTIAL, c.flags());
+        assertEquals(50, c.topk());
+        assertEquals(21, c.mcId());
+        assertEquals(-64, c.farmY());
+        assertEquals(0, c.dumpCount());
+        assertEquals(new ResultFile.Shard(2, 5, 512, 1024), c.shard());
+        assertEquals(2, c.top().size());
+        for (int i = 0; i < top.size(); i++) {
+            assertEquals(top.get(i).x, c.top().get(i).x);
+            assertEquals(top.get(i).z, c.top().get(i).z);
+            assertEquals(top.get(i).score, c.top().get(i).score);
+        }
+    }
+
+    @Test
+    void dumpBlocksRoundTrip() throws IOException {
+        Path p = dir.resolve("d.bin");
+        try (ResultFile.Writer w = new ResultFile.Writer(p)) {
+            ResultFile.TileDump d = new ResultFile.TileDump();
+            d.begin(10, -20, 300, 38);
+            d.add(0, 0, 38);
+            d.add(299, 0, 40);
+            d.add(5, 7, 500);
+            w.append(d);
+            d.begin(-4, 8, 16, 38); // an empty tile writes no block
+            w.append(d);
+            d.begin(-4, 8, 16, 38);
+            d.add(3, 1, 39);
+            w.append(d);
+            w.finish(1L, 100, 0, 38, 0, 50, 0, 0, List.of());
+        }
+
+        ResultFile.Contents c = ResultFile.read(p);
+        assertEquals(ResultFile.FLAG_DUMP, c.flags());
+        assertEquals(4, c.dumpCount());
+        assertNull(c.shard());
+        List<String> got = new ArrayList<>();
+        ResultFile.forEachDumped(p, (cx, cz, score) -> got.add(cx + "," + cz + "," + score));
+        assertEquals(List.of("-20,10,38", "279,10,40", "-15,17,500", "11,-3,39"), got);
+    }
+
+    @Test
+    void searchDumpHoldsEveryCenterAboveThreshold() throws IOException {
+        long seed = 11868470311385L;
+        SlimeFinder.Tile tile = new SlimeFinder.Tile(-40, 39, 500, 619);
+        SlimeFinder.Args args = new SlimeFinder.Args();
+        args.seed = seed;
+        args.threshold = 32;
+        args.topk = 5; // a full heap must not hide centers from the dump
+
+        Path p = dir.resolve("s.bin");
+        PackedTopK top = new PackedTopK(args.topk);
+        try (ResultFile.Writer w = new ResultFile.Writer(p)) {
+            SlimeFinder.processTile(tile, new SearchContext(args, seed, KERNEL, null, null, w), top);
+            w.finish(seed, 1000, 0, 32, 0, args.topk, 0, 0, top.toItemsDesc());
+        }
+
+        // Every center of the tile fits this heap, so it keeps everything at or above the threshold.
+        int centers = (tile.cz1() - tile.cz0() + 1) * (tile.cx1() - tile.cx0() + 1);
+        SlimeFinder.Args allArgs = new SlimeFinder.Args();
+        allArgs.seed = seed;
+        allArgs.threshold = args.threshold;
+        allArgs.topk = centers;
+        PackedTopK want = new PackedTopK(centers);
+        SlimeFinder.processTile(tile, new SearchContext(allArgs, KERNEL, null), want);
+
+        PackedTopK dumped = new PackedTopK(centers);
+        ResultFile.forEachDumped(p, (cx, cz, score) -> dumped.offer(PackedTopK.key(score, cx, cz)));
+        assertTrue(want.size() > args.topk, "tile too sparse for the threshold");
+        assertEquals(want.size(), ResultFile.read(p).dumpCount());
+        assertArrayEquals(want.toSortedDesc(), dumped.toSortedDesc());
+        assertArrayEquals(Arrays.copyOf(want.toSortedDesc(), args.topk), top.toSortedDesc());
+    }
+
+    @Test
+    void corruptDumpBlockFails() throws IOException {
+        Path p = dir.resolve("c.bin");
+        try (ResultFile.Writer w = new ResultFile.Writer(p)) {
+            ResultFile.TileDump d = new ResultFile.TileDump();
+            d.begin(0, 0, 8, 38);
+            d.add(1, 1, 45);
+            w.append(d);
+            w.finish(1L, 100, 0, 38, 0, 50, 0, 0, List.of());
+        }
+        try (FileChannel ch = FileChannel.open(p, StandardOpenOption.WRITE)) {
+            ch.write(ByteBuffer.wrap(new byte[] {(byte) 0xFF}), 72 + 24); // first payload byte
+        }
+        assertThrows(IllegalStateException.class, () -> ResultFile.forEachDumped(p, (cx, cz, score) -> {}));
+    }
+}